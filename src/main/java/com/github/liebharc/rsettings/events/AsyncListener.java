@@ -0,0 +1,186 @@
+package com.github.liebharc.rsettings.events;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * A listener which delivers events on an @see Executor instead of the thread which raised the event.
+ * 
+ * Events are delivered one after another in the order defined by a comparator, even if the executor 
+ * runs tasks in parallel or if events are raised out of order by different threads. An event which 
+ * is older than the last delivered event is dropped. At most capacity events are queued, what happens 
+ * if the queue is full is defined by @see BackPressure.
+ * 
+ * Any executor can be used, e.g. a thread pool or an executor which starts a virtual thread per task.
+ * With @see BackPressure#Block an event which is raised by the listener itself, e.g. because it 
+ * writes a setting, would wait for its own delivery. Such re-entrant events are coalesced instead. 
+ * Blocking can still deadlock if all threads of the executor wait for events, so Block should be 
+ * used with an executor which isn't used by the threads which raise the events.
+ * @param <T> The event type.
+ */
+public final class AsyncListener<T> implements Consumer<T> {
+	
+	private final Consumer<T> listener;
+	
+	private final Executor executor;
+	
+	private final BackPressure backPressure;
+	
+	private final int capacity;
+	
+	private final Comparator<? super T> order;
+	
+	private final PriorityQueue<T> pending;
+	
+	private T lastDelivered = null;
+	
+	private boolean isScheduled = false;
+	
+	/**
+	 * The thread which currently calls the listener or null.
+	 */
+	private volatile Thread deliveringThread = null;
+	
+	public AsyncListener(
+			Consumer<T> listener, 
+			Executor executor, 
+			BackPressure backPressure, 
+			int capacity, 
+			Comparator<? super T> order) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1");
+		}
+		
+		this.listener = listener;
+		this.executor = executor;
+		this.backPressure = backPressure;
+		this.capacity = capacity;
+		this.order = order;
+		this.pending = new PriorityQueue<>(order);
+	}
+	
+	@Override
+	public void accept(T argument) {
+		synchronized (this) {
+			if (isOutdated(argument) || !makeRoomFor(argument)) {
+				return;
+			}
+			
+			if (isScheduled) {
+				return;
+			}
+			
+			isScheduled = true;
+		}
+		
+		schedule();
+	}
+	
+	private boolean isOutdated(T argument) {
+		return lastDelivered != null && order.compare(argument, lastDelivered) <= 0;
+	}
+	
+	private boolean makeRoomFor(T argument) {
+		if (pending.size() < capacity) {
+			pending.add(argument);
+			return true;
+		}
+		
+		switch (backPressure) {
+		case Drop:
+			return false;
+		case Coalesce:
+			coalesce(argument);
+			return true;
+		case Block:
+			if (deliveringThread == Thread.currentThread()) {
+				coalesce(argument);
+				return true;
+			}
+			
+			try {
+				while (pending.size() >= capacity) {
+					wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			
+			if (isOutdated(argument)) {
+				return false;
+			}
+			
+			pending.add(argument);
+			return true;
+		default:
+			throw new IllegalStateException("Unknown back pressure");
+		}
+	}
+	
+	private void coalesce(T argument) {
+		T newest = argument;
+		for (T queued : pending) {
+			if (order.compare(queued, newest) > 0) {
+				newest = queued;
+			}
+		}
+		
+		pending.clear();
+		pending.add(newest);
+	}
+	
+	private void schedule() {
+		try {
+			executor.execute(this::deliver);
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				isScheduled = false;
+			}
+			
+			throw e;
+		}
+	}
+	
+	private void deliver() {
+		boolean isCompleted = false;
+		try {
+			while (true) {
+				T next;
+				synchronized (this) {
+					next = pending.poll();
+					if (next == null) {
+						isScheduled = false;
+						isCompleted = true;
+						return;
+					}
+					
+					lastDelivered = next;
+					notifyAll();
+				}
+				
+				deliveringThread = Thread.currentThread();
+				try {
+					listener.accept(next);
+				} finally {
+					deliveringThread = null;
+				}
+			}
+		} finally {
+			if (!isCompleted) {
+				// The listener has thrown, continue with the remaining events in a new task
+				boolean hasPending;
+				synchronized (this) {
+					hasPending = !pending.isEmpty();
+					isScheduled = hasPending;
+				}
+				
+				if (hasPending) {
+					schedule();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package com.github.liebharc.rsettings.events;
+
+/**
+ * Defines what an @see AsyncListener does if an event is raised while its queue is full.
+ */
+public enum BackPressure {
+	/**
+	 * The new event is dropped.
+	 */
+	Drop,
+	/**
+	 * The thread which raises the event waits until there is space in the queue.
+	 */
+	Block,
+	/**
+	 * All queued events are replaced by the newest event.
+	 */
+	Coalesce
+}
@@ -1,43 +1,63 @@
 package com.github.liebharc.rsettings.events;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.function.Consumer;
 
 /**
  * The private part of an @see Event. It contains the code to raise an event
- * while the @see Event class contains the client interface to subscribe to an event. 
+ * while the @see Event class contains the client interface to subscribe to an event.
+ *
+ * The publisher is thread safe. The listeners are kept in an array which is replaced as a whole
+ * every time a listener subscribes or unsubscribes. An event is raised to the listeners which
+ * were subscribed when raise was called, it isn't affected by concurrent changes to the listeners
+ * and doesn't need to take a lock. Listeners may be called concurrently if several threads raise
+ * the event at the same time.
  * @param <T> The event type.
  */
 public final class EventPublisher<T> {
 	
+	private static final Consumer<?>[] NO_LISTENERS = new Consumer<?>[0];
+	
 	private Event<T> event;
 	
-	private List<Consumer<T>> listeners;
-
+	private volatile Consumer<?>[] listeners;
+	
 	public EventPublisher()
 	{
 		event = new Event<T>(this);
-		listeners = new ArrayList<Consumer<T>>();
+		listeners = NO_LISTENERS;
 	}
 	
+	@SuppressWarnings("unchecked") // Only listeners of type Consumer<T> can be subscribed
 	public void raise(T argument)
 	{
-		for (Consumer<T> listener : listeners) {
-			listener.accept(argument);
+		Consumer<?>[] snapshot = listeners;
+		for (int i = 0; i < snapshot.length; i++) {
+			((Consumer<T>)snapshot[i]).accept(argument);
 		}
 	}
 	
-	void subscribe(Consumer<T> listener)
+	synchronized void subscribe(Consumer<T> listener)
 	{
-		listeners.add(listener);
+		Consumer<?>[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+		updated[listeners.length] = listener;
+		listeners = updated;
 	}
 	
-	void unsubscribe(Consumer<T> listener)
+	synchronized void unsubscribe(Consumer<T> listener)
 	{
-		listeners.remove(listener);
+		Consumer<?>[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i].equals(listener)) {
+				Consumer<?>[] updated = new Consumer<?>[current.length - 1];
+				System.arraycopy(current, 0, updated, 0, i);
+				System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+				listeners = updated;
+				return;
+			}
+		}
 	}
-
+	
 	public Event<T> getEvent() {
 		return event;
 	}
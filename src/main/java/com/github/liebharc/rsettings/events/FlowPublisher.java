@@ -0,0 +1,162 @@
+package com.github.liebharc.rsettings.events;
+
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
+
+/**
+ * Publishes an @see Event as a @see Flow.Publisher.
+ * 
+ * Every subscriber gets only as many values as it has requested. If values are raised while the 
+ * subscriber has no outstanding demand then only the latest value is kept and delivered with the 
+ * next request, so a slow subscriber never causes an unbounded buffer. Values are published 
+ * after the subscription has been created, the current value isn't replayed. A subscription whose
+ * subscriber throws, in onSubscribe or onNext, is cancelled.
+ * @param <T> The event type.
+ */
+public final class FlowPublisher<T> implements Flow.Publisher<T> {
+	
+	private final class EventSubscription implements Flow.Subscription, Consumer<T> {
+		
+		private final Flow.Subscriber<? super T> subscriber;
+		
+		private long demand = 0;
+		
+		private T latest = null;
+		
+		private boolean hasLatest = false;
+		
+		private Throwable error = null;
+		
+		private boolean isCancelled = false;
+		
+		private boolean isDraining = false;
+		
+		private EventSubscription(Flow.Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+		
+		@Override
+		public void accept(T value) {
+			synchronized (this) {
+				if (isCancelled) {
+					return;
+				}
+				
+				latest = value;
+				hasLatest = true;
+			}
+			
+			drain();
+		}
+		
+		@Override
+		public void request(long n) {
+			synchronized (this) {
+				if (isCancelled) {
+					return;
+				}
+				
+				if (n <= 0) {
+					error = new IllegalArgumentException("The number of requested values must be positive");
+				}
+				else {
+					demand += n;
+					if (demand < 0) {
+						demand = Long.MAX_VALUE;
+					}
+				}
+			}
+			
+			drain();
+		}
+		
+		@Override
+		public void cancel() {
+			synchronized (this) {
+				isCancelled = true;
+				latest = null;
+				hasLatest = false;
+			}
+			
+			event.unsubscribe(this);
+		}
+		
+		/**
+		 * Delivers the latest value if there is demand. Only one thread delivers at a time, so
+		 * that the subscriber is never called concurrently.
+		 */
+		private void drain() {
+			synchronized (this) {
+				if (isDraining) {
+					return;
+				}
+				
+				isDraining = true;
+			}
+			
+			while (true) {
+				T next;
+				Throwable failure = null;
+				synchronized (this) {
+					if (isCancelled) {
+						isDraining = false;
+						return;
+					}
+					
+					if (error != null) {
+						failure = error;
+						next = null;
+					}
+					else if (hasLatest && demand > 0) {
+						next = latest;
+						latest = null;
+						hasLatest = false;
+						demand--;
+					}
+					else {
+						// Reset in the same lock which has checked for work, otherwise a value
+						// which arrives in between would never be delivered
+						isDraining = false;
+						return;
+					}
+				}
+				
+				if (failure != null) {
+					cancel();
+					subscriber.onError(failure);
+					return;
+				}
+				
+				try {
+					subscriber.onNext(next);
+				} catch (RuntimeException e) {
+					// A failing subscriber must not stop the delivery of the event to the other listeners
+					cancel();
+					return;
+				}
+			}
+		}
+	}
+	
+	private final Event<T> event;
+	
+	public FlowPublisher(Event<T> event) {
+		this.event = event;
+	}
+	
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("Subscriber must not be null");
+		}
+		
+		EventSubscription subscription = new EventSubscription(subscriber);
+		event.subscribe(subscription);
+		try {
+			subscriber.onSubscribe(subscription);
+		} catch (RuntimeException e) {
+			// Unregisters the subscription, otherwise it would stay subscribed to the event for good
+			subscription.cancel();
+		}
+	}
+}
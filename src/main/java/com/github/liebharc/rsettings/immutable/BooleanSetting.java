@@ -0,0 +1,36 @@
+package com.github.liebharc.rsettings.immutable;
+
+import java.util.Optional;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+
+/**
+ * A setting with a boolean value. The value is stored without boxing, use @see State#getBoolean(ReadSetting) 
+ * to read it and override @see updateBoolean(State) instead of @see update(State).
+ */
+public abstract class BooleanSetting extends ReadSetting<Boolean> {
+	
+	public BooleanSetting(boolean defaultValue, Dependencies dependencies) {
+		super(defaultValue, dependencies, PrimitiveType.Boolean);
+	}
+	
+	/**
+	 * The update routine of this setting, see @see ReadSetting#update(State).
+	 * @param state The current state.
+	 * @return The new value, which is the current value if nothing should change.
+	 * @throws CheckFailedException if the value isn't consistent with the other values in the state.
+	 */
+	protected boolean updateBoolean(State state) throws CheckFailedException {
+		return state.getBoolean(this);
+	}
+	
+	@Override
+	protected final Optional<Boolean> update(State state) throws CheckFailedException {
+		return Optional.of(updateBoolean(state));
+	}
+	
+	@Override
+	protected final long updateBits(State state) throws CheckFailedException {
+		return updateBoolean(state) ? 1 : 0;
+	}
+}
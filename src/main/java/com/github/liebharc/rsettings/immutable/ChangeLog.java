@@ -0,0 +1,102 @@
+package com.github.liebharc.rsettings.immutable;
+
+import java.util.BitSet;
+
+/**
+ * Remembers which slots have been touched by a state and its ancestors. 
+ * 
+ * Each state adds one entry which is linked to the entry of its parent, so states of the same lineage 
+ * share their log. The log only reaches back a limited number of versions to limit the memory which 
+ * a state keeps alive. For older states the log can't give an answer and callers have to fall back to
+ * comparing all settings.
+ * 
+ * The log is a sliding window: once a chain reaches twice @see MAX_LENGTH entries, the newest 
+ * @see MAX_LENGTH entries are copied into a new chain and the older ones are left behind. The copies 
+ * share the touched slots with the original entries, which identify an entry in both chains. 
+ * A state can therefore always be compared with its recent ancestors.
+ */
+final class ChangeLog {
+	
+	static final int MAX_LENGTH = 64;
+	
+	static ChangeLog initial(long version) {
+		return new ChangeLog(version, new BitSet(), null, 0);
+	}
+	
+	private final long version;
+	
+	private final BitSet touched;
+	
+	private final ChangeLog previous;
+	
+	private final int length;
+	
+	private ChangeLog(long version, BitSet touched, ChangeLog previous, int length) {
+		this.version = version;
+		this.touched = touched;
+		this.previous = previous;
+		this.length = length;
+	}
+	
+	/**
+	 * Adds an entry for a new version.
+	 * @param version The version of the new state.
+	 * @param touched The slots touched by the new state, must not be changed afterwards.
+	 * @return The new entry.
+	 */
+	ChangeLog append(long version, BitSet touched) {
+		ChangeLog parent = length >= 2 * MAX_LENGTH ? truncate(MAX_LENGTH) : this;
+		return new ChangeLog(version, touched, parent, parent.length + 1);
+	}
+	
+	/**
+	 * Copies this entry and at most the given number of its predecessors.
+	 */
+	private ChangeLog truncate(int predecessors) {
+		if (predecessors == 0 || previous == null) {
+			return new ChangeLog(version, touched, null, 0);
+		}
+		
+		ChangeLog copy = previous.truncate(predecessors - 1);
+		return new ChangeLog(version, touched, copy, copy.length + 1);
+	}
+	
+	/**
+	 * Checks whether two entries stand for the same state, the entries may be copies in different chains.
+	 */
+	boolean isSameEntry(ChangeLog other) {
+		return other != null && touched == other.touched;
+	}
+	
+	long getVersion() {
+		return version;
+	}
+	
+	BitSet getTouched() {
+		return touched;
+	}
+	
+	ChangeLog getPrevious() {
+		return previous;
+	}
+	
+	/**
+	 * Collects all slots which have been touched since the given entry.
+	 * @param since An entry of an ancestor.
+	 * @return The touched slots or null if since isn't part of this log.
+	 */
+	BitSet touchedSince(ChangeLog since) {
+		BitSet result = new BitSet();
+		ChangeLog entry = this;
+		while (!since.isSameEntry(entry)) {
+			if (entry == null || entry.version <= since.version) {
+				return null;
+			}
+			
+			result.or(entry.touched);
+			entry = entry.previous;
+		}
+		
+		return result;
+	}
+}
@@ -1,207 +1,423 @@
 package com.github.liebharc.rsettings.immutable;
 
 import java.util.*;
-import java.util.stream.Collectors;
+
+import com.github.liebharc.rsettings.StateInitException;
 
 /**
  * This class is responsible to detect the dependencies between settings and to provide
- * other classes with the information on which settings depend on a given setting. 
+ * other classes with the information on which settings depend on a given setting.
+ *
+ * The graph is compiled once into arrays. Every setting gets a rank which is its position
+ * in the list of settings. Since a setting must be added after its dependencies the ranks are a
+ * topological order, only placeholders can introduce edges to a lower rank.
  */
 final class DependencyGraph {
-	
-	private static class DependencyNode {
-		
-		private final List<ReadSetting<?>> dependencies = new ArrayList<>();
 
-		public void add(ReadSetting<?> dependency) {
-			dependencies.add(dependency);
+	/**
+	 * Iterates over the dependencies in the order of their rank.
+	 */
+	public class Path {
+		private final RankQueue next = new RankQueue();
+		private final BitSet queued = new BitSet();
+		private final BitSet visited = new BitSet();
+		private int[] skipped = new int[0];
+		private int numberOfSkipped = 0;
+		private int current = -1;
+		private int nextHint = 0;
+
+		private Path(List<ReadSetting<?>> init) {
+			BitSet expanded = new BitSet();
+			for (ReadSetting<?> setting : init) {
+				int[] group = ranksById.get(setting.getId());
+				if (group != null) {
+					for (int rank : group) {
+						expanded.set(rank);
+					}
+				}
+			}
+
+			for (int rank = expanded.nextSetBit(0); rank >= 0; rank = expanded.nextSetBit(rank + 1)) {
+				add(rank);
+			}
+
+			for (int rank = expanded.nextSetBit(0); rank >= 0; rank = expanded.nextSetBit(rank + 1)) {
+				visit(rank);
+			}
+
+			selectCurrent();
 		}
-		
-		public void visit(Path path) {
-			path.next.addAll(dependencies);
+
+		public ReadSetting<?> current() {
+			return current >= 0 ? settings[current] : null;
 		}
 
-		public List<ReadSetting<?>> getDependencies() {
-			return dependencies;
+		public boolean moveNext(boolean hasCurrentBeenModified) {
+			visited.set(current);
+			queued.clear(current);
+			next.poll();
+
+			if (hasCurrentBeenModified) {
+				visit(current);
+			}
+
+			selectCurrent();
+			return current >= 0;
 		}
-	}
-	
-	private class CyclicDependencyNode extends DependencyNode {
 
-		private final List<ReadSetting<?>> placeholders;
+		private void add(int rank) {
+			if (!queued.get(rank)) {
+				queued.set(rank);
+				next.add(rank);
+			}
+		}
 
-		public CyclicDependencyNode(List<ReadSetting<?>> cyclicReferences) {
-			this.placeholders = cyclicReferences;
+		private void visit(int rank) {
+			for (int dependency : downstream[rank]) {
+				add(dependency);
+			}
+
+			int[] cyclic = cyclicDownstream[rank];
+			if (cyclic != null) {
+				for (int dependency : cyclic) {
+					add(dependency);
+				}
+
+				restart();
+			}
 		}
-		
-		@Override
-		public void visit(Path path) {
-			super.visit(path);
-			forceAddAllDependencies(path);
+
+		/**
+		 * Settings with a rank lower than the current one are usually skipped. A cyclic dependency
+		 * restarts the iteration so that these settings are visited again.
+		 */
+		private void restart() {
+			nextHint = 0;
+			for (int i = 0; i < numberOfSkipped; i++) {
+				next.add(skipped[i]);
+			}
+
+			numberOfSkipped = 0;
 		}
 
-		private void forceAddAllDependencies(Path path) {
-			for (ReadSetting<?> setting : placeholders) {
-				DependencyNode dep = settingDependencies.get(setting);
-				path.next.addAll(dep.getDependencies());
-				path.nextHint = 0;
+		private void selectCurrent() {
+			while (!next.isEmpty() && next.peek() < nextHint) {
+				if (numberOfSkipped == skipped.length) {
+					skipped = Arrays.copyOf(skipped, Math.max(16, 2 * numberOfSkipped));
+				}
+
+				skipped[numberOfSkipped++] = next.poll();
 			}
+
+			if (next.isEmpty()) {
+				current = -1;
+				return;
+			}
+
+			current = next.peek();
+			nextHint = current + 1;
 		}
+
+		 List<ReadSetting<?>> getVisited() {
+			 return toSettings(visited);
+		 }
+
+		 void addVisitedTo(BitSet ranks) {
+			 ranks.or(visited);
+		 }
 	}
-	
+
 	/**
-	 * Iterates over the dependencies.
+	 * Iterates over the dependencies level by level. All settings of a level only depend on settings of 
+	 * lower levels, so they can be updated in any order or in parallel. Edges to a lower rank are ignored, 
+	 * as they are by @see Path unless there is a cyclic placeholder. Therefore this must only be used if
+	 * the graph @see isLayered().
 	 */
-	public class Path {
-		private final Set<ReadSetting<?>> next = new HashSet<>();
-		private final Set<ReadSetting<?>> visited = new HashSet<>();
-		private ReadSetting<?> current;
-		private int nextHint = 0;
-		
-		private Path(List<ReadSetting<?>> init) {
-			List<ReadSetting<?>> expanded =
-				settings.stream().filter(s -> { 
-					return init.stream().anyMatch(i -> i.getId() == s.getId());
-				})
-				.collect(Collectors.toList());
-			next.addAll(expanded);
-			for (ReadSetting<?> setting : expanded) {
-				settingDependencies.get(setting).visit(this);
-			}
-			
-			selectCurrent();
+	public class Wavefront {
+		private final BitSet[] pending = new BitSet[numberOfLevels];
+		private final RankQueue next = new RankQueue();
+		private final BitSet visited = new BitSet();
+		private int[] current = NONE;
+
+		private Wavefront(List<ReadSetting<?>> init) {
+			BitSet expanded = new BitSet();
+			for (ReadSetting<?> setting : init) {
+				int[] group = ranksById.get(setting.getId());
+				if (group != null) {
+					for (int rank : group) {
+						expanded.set(rank);
+					}
+				}
+			}
+
+			for (int rank = expanded.nextSetBit(0); rank >= 0; rank = expanded.nextSetBit(rank + 1)) {
+				add(rank);
+				changed(rank);
+			}
 		}
-		
-		public ReadSetting<?> current() {
+
+		/**
+		 * Moves to the lowest level which has settings that need to be updated.
+		 * @return false if there are no more settings to update.
+		 */
+		public boolean moveNext() {
+			if (next.isEmpty()) {
+				current = NONE;
+				return false;
+			}
+
+			int level = next.poll();
+			BitSet ranks = pending[level];
+			pending[level] = null;
+			visited.or(ranks);
+			current = ranks.stream().toArray();
+			return true;
+		}
+
+		/**
+		 * The ranks of the settings in the current level, in ascending order.
+		 * @return The current ranks.
+		 */
+		public int[] current() {
 			return current;
 		}
-		
-		public boolean moveNext(boolean hasCurrentBeenModified) {
-			visited.add(current);
-			next.remove(current);
-			
-			if (hasCurrentBeenModified) {
-				settingDependencies.get(current).visit(this);
-			}
-			
-			selectCurrent();
-			return current != null;
+
+		public ReadSetting<?> getSetting(int rank) {
+			return settings[rank];
 		}
-		
-		private void selectCurrent() {
-			for (int i = nextHint; i < settings.size(); i++) {
-				ReadSetting<?> setting = settings.get(i);
-				if (next.contains(setting)) {
-					current = setting;
-					nextHint = i + 1;
-					return;
+
+		/**
+		 * Marks that the setting with the given rank has been modified, so its dependencies must be updated.
+		 * @param rank A rank of the current level.
+		 */
+		public void changed(int rank) {
+			for (int dependency : downstream[rank]) {
+				if (dependency > rank) {
+					add(dependency);
 				}
 			}
-			
-			current = null;
 		}
-		
-		 List<ReadSetting<?>> getVisited() {
-			 return settings.stream()
-					 .filter(s -> visited.contains(s))
-					 .collect(Collectors.toList());
-		 }
+
+		private void add(int rank) {
+			int level = levels[rank];
+			if (pending[level] == null) {
+				pending[level] = new BitSet();
+				next.add(level);
+			}
+
+			pending[level].set(rank);
+		}
+
+		List<ReadSetting<?>> getVisited() {
+			return toSettings(visited);
+		}
 	}
-	
-	private final Map<ReadSetting<?>, DependencyNode> settingDependencies = new HashMap<>();
-	private final List<ReadSetting<?>> settings;
-	
+
+	private static final int[] NONE = new int[0];
+
+	private final ReadSetting<?>[] settings;
+
+	private final Map<SettingId, int[]> ranksById = new HashMap<>();
+
+	private final int[][] downstream;
+
+	private final int[][] cyclicDownstream;
+
+	/**
+	 * The weakly connected component of every rank, identified by the lowest rank in the component.
+	 */
+	private final int[] components;
+
+	/**
+	 * The level of every rank, which is the length of the longest chain of edges to a higher rank leading to it.
+	 */
+	private final int[] levels;
+
+	private final int numberOfLevels;
+
+	private final boolean isLayered;
+
 	public DependencyGraph(List<ReadSetting<?>> settings) {
-		this.settings = settings;
-		Map<ReadSetting<?>, List<Placeholder<?>>> settingToPlaceholder = new HashMap<>();
-		Map<ReadSetting<?>, ReadSetting<?>> placeholderToSetting = new HashMap<>();
-		
-		catalogPlaceholders(settings, settingToPlaceholder, placeholderToSetting);
-		initializeEmptyDependenciesMap(settings, settingToPlaceholder);
-		catalogDependencies(settings, settingToPlaceholder, placeholderToSetting);
-	}
-
-	private void catalogPlaceholders(List<ReadSetting<?>> settings,
-			Map<ReadSetting<?>, List<Placeholder<?>>> settingToPlaceholder,
-			Map<ReadSetting<?>, ReadSetting<?>> placeholderToSetting) {
-		for (ReadSetting<?> setting : settings) {
+		this.settings = settings.toArray(new ReadSetting<?>[settings.size()]);
+		this.downstream = new int[this.settings.length][];
+		this.cyclicDownstream = new int[this.settings.length][];
+
+		Map<ReadSetting<?>, Integer> ranks = new HashMap<>();
+		Map<SettingId, Integer> settingRanks = new HashMap<>();
+		catalogRanks(ranks, settingRanks);
+
+		List<List<Integer>> dependencies = catalogDependencies(ranks, settingRanks);
+		for (int rank = 0; rank < this.settings.length; rank++) {
+			downstream[rank] = toArray(dependencies.get(rank));
+		}
+
+		catalogCyclicDependencies();
+		components = catalogComponents();
+		levels = catalogLevels();
+		numberOfLevels = Arrays.stream(levels).max().orElse(-1) + 1;
+		isLayered = catalogIsLayered();
+	}
+
+	private void catalogRanks(
+			Map<ReadSetting<?>, Integer> ranks,
+			Map<SettingId, Integer> settingRanks) {
+		Map<SettingId, List<Integer>> groups = new HashMap<>();
+		for (int rank = 0; rank < settings.length; rank++) {
+			ReadSetting<?> setting = settings[rank];
+			ranks.put(setting, rank);
+			groups.computeIfAbsent(setting.getId(), id -> new ArrayList<>()).add(rank);
+			if (!Placeholder.isPlaceholder(setting)) {
+				settingRanks.putIfAbsent(setting.getId(), rank);
+			}
+		}
+
+		for (Map.Entry<SettingId, List<Integer>> group : groups.entrySet()) {
+			ranksById.put(group.getKey(), toArray(group.getValue()));
+		}
+	}
+
+	private List<List<Integer>> catalogDependencies(
+			Map<ReadSetting<?>, Integer> ranks,
+			Map<SettingId, Integer> settingRanks) {
+		List<List<Integer>> dependencies = new ArrayList<>();
+		for (int rank = 0; rank < settings.length; rank++) {
+			dependencies.add(new ArrayList<>());
+		}
+
+		for (int rank = 0; rank < settings.length; rank++) {
+			ReadSetting<?> setting = settings[rank];
 			if (Placeholder.isPlaceholder(setting)) {
-				Placeholder<?> placeholder = (Placeholder<?>)setting;
-				ReadSetting<?> reference = 
-						settings.stream()
-						.filter(s -> s.getId() == placeholder.getId() && !Placeholder.isPlaceholder(s))
-						.findFirst()
-						.get();
-				placeholderToSetting.put(placeholder, reference);
-				if (!settingToPlaceholder.containsKey(reference)) {
-					settingToPlaceholder.put(reference, new ArrayList<>());
+				Integer reference = settingRanks.get(setting.getId());
+				if (reference == null) {
+					throw new StateInitException("Placeholder hasn't been substituted by a setting");
+				}
+
+				dependencies.get(reference).add(rank);
+			}
+			else {
+				for (ReadSetting<?> source : setting.getDependencies().asList()) {
+					dependencies.get(ranks.get(source)).add(rank);
+				}
+
+				for (int placeholder : ranksById.get(setting.getId())) {
+					if (placeholder != rank) {
+						dependencies.get(placeholder).add(rank);
+					}
 				}
-				
-				settingToPlaceholder.get(reference).add(placeholder);
 			}
 		}
+
+		return dependencies;
 	}
 
-	private void initializeEmptyDependenciesMap(
-			List<ReadSetting<?>> settings,
-			Map<ReadSetting<?>, List<Placeholder<?>>> settingToPlaceholder) {
-		for (ReadSetting<?> setting : settings) {
-			if (!Placeholder.isPlaceholder(setting)) {
-				if (settingToPlaceholder.containsKey(setting)) {
-					List<ReadSetting<?>> cyclicReferences =
-							settingToPlaceholder.get(setting)
-							.stream()
-							.filter(s -> s.getType() == PlaceholderType.Cyclic)
-							.collect(Collectors.toList());
-					if (!cyclicReferences.isEmpty()) {
-						settingDependencies.put(setting, new CyclicDependencyNode(cyclicReferences));
+	private void catalogCyclicDependencies() {
+		for (int rank = 0; rank < settings.length; rank++) {
+			if (Placeholder.isPlaceholder(settings[rank])) {
+				continue;
+			}
+
+			Set<Integer> dependencies = null;
+			for (int placeholder : ranksById.get(settings[rank].getId())) {
+				if (placeholder != rank 
+						&& ((Placeholder<?>)settings[placeholder]).getType() == PlaceholderType.Cyclic) {
+					if (dependencies == null) {
+						dependencies = new LinkedHashSet<>();
 					}
-					else {
-						settingDependencies.put(setting, new DependencyNode());
+
+					for (int dependency : downstream[placeholder]) {
+						dependencies.add(dependency);
 					}
 				}
-				else {
-					settingDependencies.put(setting, new DependencyNode());
+			}
+
+			if (dependencies != null) {
+				cyclicDownstream[rank] = toArray(dependencies);
+			}
+		}
+	}
+
+	private int[] catalogLevels() {
+		int[] result = new int[settings.length];
+		for (int rank = 0; rank < settings.length; rank++) {
+			for (int dependency : downstream[rank]) {
+				if (dependency > rank) {
+					result[dependency] = Math.max(result[dependency], result[rank] + 1);
 				}
 			}
-			else {
-				settingDependencies.put(setting, new DependencyNode());
+		}
+
+		return result;
+	}
+
+	private boolean catalogIsLayered() {
+		for (int rank = 0; rank < settings.length; rank++) {
+			if (cyclicDownstream[rank] != null) {
+				return false;
+			}
+
+			for (int dependency : downstream[rank]) {
+				if (dependency < rank && !settings[dependency].getId().equals(settings[rank].getId())) {
+					return false;
+				}
 			}
 		}
+
+		return true;
 	}
 
-	private void catalogDependencies(List<ReadSetting<?>> settings,
-			Map<ReadSetting<?>, List<Placeholder<?>>> settingToPlaceholder,
-			Map<ReadSetting<?>, ReadSetting<?>> placeholderToSetting) {
-		for (ReadSetting<?> setting : settings) {
-			List<ReadSetting<?>> dependencies = handlePlaceholders(
-					setting,
-					settingToPlaceholder,
-					placeholderToSetting);
-			for (ReadSetting<?> source : dependencies) {
-				settingDependencies.get(source).add(setting);
+	private int[] catalogComponents() {
+		int[] parents = new int[settings.length];
+		for (int rank = 0; rank < settings.length; rank++) {
+			parents[rank] = rank;
+		}
+
+		for (int rank = 0; rank < settings.length; rank++) {
+			for (int dependency : downstream[rank]) {
+				union(parents, rank, dependency);
+			}
+
+			if (cyclicDownstream[rank] != null) {
+				for (int dependency : cyclicDownstream[rank]) {
+					union(parents, rank, dependency);
+				}
 			}
 		}
+
+		for (int rank = 0; rank < settings.length; rank++) {
+			parents[rank] = find(parents, rank);
+		}
+
+		return parents;
 	}
 
-	private List<ReadSetting<?>> handlePlaceholders(
-			ReadSetting<?> setting,
-			Map<ReadSetting<?>, List<Placeholder<?>>> settingToPlaceholder,
-			Map<ReadSetting<?>, ReadSetting<?>> placeholderToSetting) {
-		if (Placeholder.isPlaceholder(setting)) {
-			return Arrays.asList(placeholderToSetting.get(setting));
+	private static void union(int[] parents, int first, int second) {
+		int firstRoot = find(parents, first);
+		int secondRoot = find(parents, second);
+		if (firstRoot < secondRoot) {
+			parents[secondRoot] = firstRoot;
 		}
 		else {
-			List<ReadSetting<?>> dependencies = new ArrayList<>();
-			dependencies.addAll(setting.getDependencies().asList());
-			if (settingToPlaceholder.containsKey(setting)) {
-				dependencies.addAll(settingToPlaceholder.get(setting));
-			}
-			
-			return dependencies;
+			parents[firstRoot] = secondRoot;
 		}
 	}
-	
+
+	private static int find(int[] parents, int rank) {
+		while (parents[rank] != rank) {
+			parents[rank] = parents[parents[rank]];
+			rank = parents[rank];
+		}
+
+		return rank;
+	}
+
+	private static int[] toArray(Collection<Integer> ranks) {
+		if (ranks.isEmpty()) {
+			return NONE;
+		}
+
+		return ranks.stream().mapToInt(i -> i).toArray();
+	}
+
 	/**
 	 * Gets all settings which depend on the given setting and therefore must be updated.
 	 * @param setting A setting.
@@ -210,4 +426,43 @@ final class DependencyGraph {
 	public Path getDependencies(List<ReadSetting<?>> settings) {
 		return new Path(settings);
 	}
+
+	/**
+	 * Indicates whether the changes can be propagated level by level with @see Wavefront. That's 
+	 * the case if there are no cyclic placeholders and if the only edges to a lower rank are the ones between 
+	 * a setting and its placeholders.
+	 * @return true if the graph can be processed level by level.
+	 */
+	boolean isLayered() {
+		return isLayered;
+	}
+
+	Wavefront getWavefront(List<ReadSetting<?>> settings) {
+		return new Wavefront(settings);
+	}
+
+	/**
+	 * Groups settings by the weakly connected component they belong to. Changes to settings of different 
+	 * components can be propagated independently of each other.
+	 * @param settings Settings which are part of the graph.
+	 * @return The settings grouped by component, ordered by the lowest rank of each component.
+	 */
+	List<List<ReadSetting<?>>> groupByComponent(List<ReadSetting<?>> settings) {
+		SortedMap<Integer, List<ReadSetting<?>>> groups = new TreeMap<>();
+		for (ReadSetting<?> setting : settings) {
+			int rank = ranksById.get(setting.getId())[0];
+			groups.computeIfAbsent(components[rank], c -> new ArrayList<>()).add(setting);
+		}
+
+		return new ArrayList<>(groups.values());
+	}
+
+	List<ReadSetting<?>> toSettings(BitSet ranks) {
+		List<ReadSetting<?>> result = new ArrayList<>(ranks.cardinality());
+		for (int rank = ranks.nextSetBit(0); rank >= 0; rank = ranks.nextSetBit(rank + 1)) {
+			result.add(settings[rank]);
+		}
+
+		return result;
+	}
 }
@@ -0,0 +1,36 @@
+package com.github.liebharc.rsettings.immutable;
+
+import java.util.Optional;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+
+/**
+ * A setting with a double value. The value is stored without boxing, use @see State#getDouble(ReadSetting) 
+ * to read it and override @see updateDouble(State) instead of @see update(State).
+ */
+public abstract class DoubleSetting extends ReadSetting<Double> {
+	
+	public DoubleSetting(double defaultValue, Dependencies dependencies) {
+		super(defaultValue, dependencies, PrimitiveType.Double);
+	}
+	
+	/**
+	 * The update routine of this setting, see @see ReadSetting#update(State).
+	 * @param state The current state.
+	 * @return The new value, which is the current value if nothing should change.
+	 * @throws CheckFailedException if the value isn't consistent with the other values in the state.
+	 */
+	protected double updateDouble(State state) throws CheckFailedException {
+		return state.getDouble(this);
+	}
+	
+	@Override
+	protected final Optional<Double> update(State state) throws CheckFailedException {
+		return Optional.of(updateDouble(state));
+	}
+	
+	@Override
+	protected final long updateBits(State state) throws CheckFailedException {
+		return Double.doubleToLongBits(updateDouble(state));
+	}
+}
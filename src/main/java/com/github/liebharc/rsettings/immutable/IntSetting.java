@@ -0,0 +1,36 @@
+package com.github.liebharc.rsettings.immutable;
+
+import java.util.Optional;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+
+/**
+ * A setting with an int value. The value is stored without boxing, use @see State#getInt(ReadSetting) 
+ * to read it and override @see updateInt(State) instead of @see update(State).
+ */
+public abstract class IntSetting extends ReadSetting<Integer> {
+	
+	public IntSetting(int defaultValue, Dependencies dependencies) {
+		super(defaultValue, dependencies, PrimitiveType.Int);
+	}
+	
+	/**
+	 * The update routine of this setting, see @see ReadSetting#update(State).
+	 * @param state The current state.
+	 * @return The new value, which is the current value if nothing should change.
+	 * @throws CheckFailedException if the value isn't consistent with the other values in the state.
+	 */
+	protected int updateInt(State state) throws CheckFailedException {
+		return state.getInt(this);
+	}
+	
+	@Override
+	protected final Optional<Integer> update(State state) throws CheckFailedException {
+		return Optional.of(updateInt(state));
+	}
+	
+	@Override
+	protected final long updateBits(State state) throws CheckFailedException {
+		return updateInt(state);
+	}
+}
@@ -0,0 +1,36 @@
+package com.github.liebharc.rsettings.immutable;
+
+import java.util.Optional;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+
+/**
+ * A setting with a long value. The value is stored without boxing, use @see State#getLong(ReadSetting) 
+ * to read it and override @see updateLong(State) instead of @see update(State).
+ */
+public abstract class LongSetting extends ReadSetting<Long> {
+	
+	public LongSetting(long defaultValue, Dependencies dependencies) {
+		super(defaultValue, dependencies, PrimitiveType.Long);
+	}
+	
+	/**
+	 * The update routine of this setting, see @see ReadSetting#update(State).
+	 * @param state The current state.
+	 * @return The new value, which is the current value if nothing should change.
+	 * @throws CheckFailedException if the value isn't consistent with the other values in the state.
+	 */
+	protected long updateLong(State state) throws CheckFailedException {
+		return state.getLong(this);
+	}
+	
+	@Override
+	protected final Optional<Long> update(State state) throws CheckFailedException {
+		return Optional.of(updateLong(state));
+	}
+	
+	@Override
+	protected final long updateBits(State state) throws CheckFailedException {
+		return updateLong(state);
+	}
+}
@@ -0,0 +1,107 @@
+package com.github.liebharc.rsettings.immutable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Provides the off-heap pages in which a state stores the versions and the primitive values
+ * of its settings. A register which is created with a pool keeps these columns outside of
+ * the Java heap, which reduces the garbage collection work for very large registers.
+ *
+ * Pages are cut out of large direct buffers, the slabs, so that a page doesn't need any objects
+ * of its own. A page is identified by a number from which the slab and the position in the slab 
+ * can be computed.
+ * 
+ * Pages are shared between states as long as they aren't changed. Releasing a state with
+ * @see State#release() returns the pages which are no longer used by any other state to
+ * the pool, so that they can be reused by the next states. Pages of states which are never
+ * released stay allocated. The slabs are freed once the pool and all states which use it 
+ * aren't referenced anymore.
+ */
+public final class PagePool {
+	
+	/**
+	 * The number of pages in a slab, a slab has 32 KB.
+	 */
+	static final int PAGES_PER_SLAB = 64;
+	
+	/**
+	 * Returns the position of a page in its slab.
+	 */
+	static int offsetOf(int page) {
+		return (page % PAGES_PER_SLAB) * Values.PAGE_SIZE;
+	}
+	
+	/**
+	 * The slabs, the array is replaced when a slab is added so that it can be read without a lock.
+	 */
+	private volatile LongBuffer[] slabs = new LongBuffer[0];
+	
+	private int[] freePages = new int[PAGES_PER_SLAB];
+	
+	private int numberOfFreePages = 0;
+	
+	/**
+	 * Returns the number of released pages which are currently kept for reuse.
+	 * @return The number of pages.
+	 */
+	public synchronized int getNumberOfPooledPages() {
+		return numberOfFreePages;
+	}
+	
+	/**
+	 * Returns the number of pages which have been allocated, used and free ones.
+	 * @return The number of pages.
+	 */
+	public int getNumberOfAllocatedPages() {
+		return slabs.length * PAGES_PER_SLAB;
+	}
+	
+	/**
+	 * Returns a free page and allocates a new slab if there is none. The content of the page is undefined.
+	 * @return The page.
+	 */
+	synchronized int acquire() {
+		if (numberOfFreePages == 0) {
+			addSlab();
+		}
+		
+		return freePages[--numberOfFreePages];
+	}
+	
+	/**
+	 * Returns a page to the pool. The page must not be used anymore by the caller.
+	 */
+	synchronized void release(int page) {
+		if (numberOfFreePages == freePages.length) {
+			freePages = Arrays.copyOf(freePages, freePages.length * 2);
+		}
+		
+		freePages[numberOfFreePages++] = page;
+	}
+	
+	/**
+	 * Returns the slab which contains a page.
+	 */
+	LongBuffer getSlab(int page) {
+		return slabs[page / PAGES_PER_SLAB];
+	}
+	
+	private void addSlab() {
+		LongBuffer slab = ByteBuffer
+				.allocateDirect(PAGES_PER_SLAB * Values.PAGE_SIZE * Long.BYTES)
+				.order(ByteOrder.nativeOrder())
+				.asLongBuffer();
+		int index = slabs.length;
+		LongBuffer[] grown = Arrays.copyOf(slabs, index + 1);
+		grown[index] = slab;
+		slabs = grown;
+		
+		// Hand out the pages in ascending order
+		for (int i = PAGES_PER_SLAB - 1; i >= 0; i--) {
+			freePages[numberOfFreePages++] = index * PAGES_PER_SLAB + i;
+		}
+	}
+}
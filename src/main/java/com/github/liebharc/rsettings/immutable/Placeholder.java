@@ -18,7 +18,19 @@ public class Placeholder<T> extends ReadSetting<T> {
 		return setting instanceof Placeholder<?>; 
 	}
 	
-	private SettingId id = null;
+	/**
+	 * Returns the setting which is substituted by a placeholder or the setting itself if it isn't a placeholder.
+	 */
+	static ReadSetting<?> resolve(ReadSetting<?> setting) {
+		ReadSetting<?> resolved = setting;
+		while (resolved instanceof Placeholder<?> && ((Placeholder<?>)resolved).reference != null) {
+			resolved = ((Placeholder<?>)resolved).reference;
+		}
+		
+		return resolved;
+	}
+	
+	private ReadSetting<T> reference = null;
 	
 	private final PlaceholderType type;
 	
@@ -32,22 +44,49 @@ public class Placeholder<T> extends ReadSetting<T> {
 	}
 
 	public void substitute(ReadSetting<T> setting) {
-		if (id != null) {
+		if (reference != null) {
 			throw new StateInitException("Substitute can only be called once");
 		}
 		
-		id = setting.getId();
+		reference = setting;
 	}
 	
 	@Override
 	protected SettingId getId() {
-		if (id == null) {
+		if (reference == null) {
 			return super.getId();
 		}
 		
-		return id;
+		return reference.getId();
+	}
+	
+	@Override
+	public String getKey() {
+		if (reference == null) {
+			return super.getKey();
+		}
+		
+		return reference.getKey();
+	}
+	
+	@Override
+	public int getSlot() {
+		if (reference == null) {
+			return super.getSlot();
+		}
+		
+		return reference.getSlot();
 	}
 
+	@Override
+	PrimitiveType getPrimitiveType() {
+		if (reference == null) {
+			return super.getPrimitiveType();
+		}
+		
+		return reference.getPrimitiveType();
+	}
+	
 	public PlaceholderType getType() {
 		return type;
 	}
@@ -0,0 +1,72 @@
+package com.github.liebharc.rsettings.immutable;
+
+/**
+ * The primitive types which a state can store without boxing. The values are stored as 
+ * the bits of a long, two values are equal if their bits are equal.
+ */
+public enum PrimitiveType {
+	Int(Integer.class) {
+		@Override
+		long toBits(Object value) {
+			return (Integer)value;
+		}
+		
+		@Override
+		Object fromBits(long bits) {
+			return (int)bits;
+		}
+	},
+	
+	Long(java.lang.Long.class) {
+		@Override
+		long toBits(Object value) {
+			return (java.lang.Long)value;
+		}
+		
+		@Override
+		Object fromBits(long bits) {
+			return bits;
+		}
+	},
+	
+	Double(java.lang.Double.class) {
+		@Override
+		long toBits(Object value) {
+			return java.lang.Double.doubleToLongBits((java.lang.Double)value);
+		}
+		
+		@Override
+		Object fromBits(long bits) {
+			return java.lang.Double.longBitsToDouble(bits);
+		}
+	},
+	
+	Boolean(java.lang.Boolean.class) {
+		@Override
+		long toBits(Object value) {
+			return (java.lang.Boolean)value ? 1 : 0;
+		}
+		
+		@Override
+		Object fromBits(long bits) {
+			return bits != 0;
+		}
+	};
+	
+	private final Class<?> boxedType;
+	
+	private PrimitiveType(Class<?> boxedType) {
+		this.boxedType = boxedType;
+	}
+	
+	/**
+	 * Indicates whether a value is a boxed value of this type.
+	 */
+	boolean isInstance(Object value) {
+		return boxedType.isInstance(value);
+	}
+	
+	abstract long toBits(Object value);
+	
+	abstract Object fromBits(long bits);
+}
@@ -0,0 +1,32 @@
+package com.github.liebharc.rsettings.immutable;
+
+/**
+ * Defines how a @see State.Builder propagates changes to the dependent settings.
+ */
+public enum PropagationMode {
+	/**
+	 * All dependent settings are updated one after another in the calling thread.
+	 */
+	Sequential,
+	
+	/**
+	 * Changes to settings which don't depend on each other, directly or indirectly, are propagated 
+	 * in parallel on the common fork join pool. The result is the same as with @see Sequential,
+	 * but the update methods of the settings must be safe to be called from different threads
+	 * and must only read settings they depend on.
+	 */
+	Parallel,
+	
+	/**
+	 * Dependent settings are updated level by level, a level contains all settings whose 
+	 * dependencies have been updated in previous levels. The result is the same as with 
+	 * @see Sequential. Graphs with cyclic placeholders are propagated sequentially.
+	 */
+	Wavefront,
+	
+	/**
+	 * Like @see Wavefront, but the settings of a level are updated in parallel on the common 
+	 * fork join pool. The same restrictions as for @see Parallel apply.
+	 */
+	ParallelWavefront
+}
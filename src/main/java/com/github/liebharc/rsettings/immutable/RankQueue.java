@@ -0,0 +1,64 @@
+package com.github.liebharc.rsettings.immutable;
+
+import java.util.Arrays;
+
+/**
+ * A priority queue of ranks which always returns the lowest rank first.
+ * In contrast to @see java.util.PriorityQueue the ranks are stored without boxing.
+ */
+final class RankQueue {
+
+	private int[] heap = new int[16];
+
+	private int size = 0;
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	void add(int rank) {
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, size * 2);
+		}
+
+		int i = size++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (heap[parent] <= rank) {
+				break;
+			}
+
+			heap[i] = heap[parent];
+			i = parent;
+		}
+
+		heap[i] = rank;
+	}
+
+	int peek() {
+		return heap[0];
+	}
+
+	int poll() {
+		int result = heap[0];
+		int last = heap[--size];
+		int i = 0;
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && heap[child + 1] < heap[child]) {
+				child++;
+			}
+
+			if (last <= heap[child]) {
+				break;
+			}
+
+			heap[i] = heap[child];
+			i = child;
+		}
+
+		heap[i] = last;
+		return result;
+	}
+}
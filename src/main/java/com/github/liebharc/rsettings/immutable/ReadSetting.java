@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Optional;
 
 import com.github.liebharc.rsettings.CheckFailedException;
+import com.github.liebharc.rsettings.StateInitException;
 
 /**
  * A setting which only can be read by the user but not changed directly. The value of a read-only
@@ -28,10 +29,16 @@ public abstract class ReadSetting<T>
 	
 	private final SettingId id;
 	
+	private int slot = -1;
+	
+	private String key = null;
+	
 	private final T defaultValue;
 		
 	private final Dependencies dependencies;
 	
+	private final PrimitiveType primitiveType;
+	
 	/**
 	 * Creates a new setting.
 	 * @param defaultValue The default value of the setting. The default values of all settings 
@@ -41,9 +48,19 @@ public abstract class ReadSetting<T>
 	 * must be set in the constructor because that should ensure that the dependency tree can be linearized.
 	 */
 	public ReadSetting(T defaultValue, Dependencies dependencies) {
+		this(defaultValue, dependencies, null);
+	}
+	
+	/**
+	 * Creates a new setting whose values are stored without boxing. This is intended for settings 
+	 * like @see DoubleSetting which implement @see updateBits(State).
+	 * @param primitiveType The primitive type of the values or null if the values are objects.
+	 */
+	protected ReadSetting(T defaultValue, Dependencies dependencies, PrimitiveType primitiveType) {
 		this.id = new SettingId();
 		this.defaultValue = defaultValue;
 		this.dependencies = dependencies; 
+		this.primitiveType = primitiveType;
 	}
 	
 	public final T getDefaultValue() {
@@ -54,7 +71,8 @@ public abstract class ReadSetting<T>
 	 * The update routine is called every time the setting or one of the values
 	 * it depends on is changed.
 	 * @param state The current state. Every operation which is done in the update routine
-	 * should take the values from the state argument and not from somewhere else.
+	 * should take the values from the state argument and not from somewhere else. The state is only
+	 * valid during this call, it reflects the changes of the ongoing update phase.
 	 * @return may return a value if the current value of the setting should be different.
 	 * @throws CheckFailedException may be thrown by the implementation if the value is incorrect
 	 * or not consistent with the other values in the state.
@@ -63,6 +81,20 @@ public abstract class ReadSetting<T>
 		return Optional.empty();
 	}
 	
+	/**
+	 * The update routine of settings with a @see PrimitiveType, it's called instead of @see update(State).
+	 * @param state The current state, see @see update(State).
+	 * @return The bits of the new value, which are the bits of the current value if nothing should change.
+	 * @throws CheckFailedException see @see update(State).
+	 */
+	protected long updateBits(State state) throws CheckFailedException {
+		return state.getBits(this);
+	}
+	
+	PrimitiveType getPrimitiveType() {
+		return primitiveType;
+	}
+	
 	Dependencies getDependencies() {
 		return this.dependencies;
 	}
@@ -75,6 +107,46 @@ public abstract class ReadSetting<T>
 		return id;
 	}
 	
+	/**
+	 * The slot is the position of the setting in its register, not counting placeholders.
+	 * States use it to look up the value of a setting.
+	 * @return The slot or -1 if the setting hasn't been added to a register. 
+	 */
+	public int getSlot() {
+		return slot;
+	}
+	
+	/**
+	 * The key is an optional name of the setting which stays the same across restarts, e.g. 
+	 * a namespaced path like "network.proxy.port". It can be used to look up a setting with 
+	 * @see State#findByKey(String) and identifies the setting in persisted snapshots.
+	 * 
+	 * The key is assigned by @see Register#add(String, ReadSetting) or by the constructors of the
+	 * mutable settings which take a key. Settings may override this method instead, the result must 
+	 * then be constant and must not be null. Mutable settings add themselves to the register in their 
+	 * constructor, so an override must not depend on fields of the subclass.
+	 * @return The key or null if the setting has no key.
+	 */
+	public String getKey() {
+		return key;
+	}
+	
+	void assignKey(String key) {
+		if (this.key != null) {
+			throw new StateInitException("Setting already has a key");
+		}
+		
+		this.key = key;
+	}
+	
+	void assignSlot(int slot) {
+		if (this.slot >= 0) {
+			throw new StateInitException("Setting has already been added to a register");
+		}
+		
+		this.slot = slot;
+	}
+	
 	@Override
 	public boolean shouldBeStored() {
 		return false;
@@ -0,0 +1,19 @@
+package com.github.liebharc.rsettings.immutable;
+
+/**
+ * A setting with a boolean value which can be changed by an user, 
+ * use @see State.Builder#setBoolean(ReadSetting, boolean) to change it without boxing.
+ */
+public abstract class ReadWriteBooleanSetting 
+	extends BooleanSetting 
+	implements WriteableSetting<Boolean> {
+	
+	public ReadWriteBooleanSetting(boolean defaultValue, Dependencies dependencies) {
+		super(defaultValue, dependencies);
+	}
+	
+	@Override
+	public boolean shouldBeStored() {
+		return true;
+	}
+}
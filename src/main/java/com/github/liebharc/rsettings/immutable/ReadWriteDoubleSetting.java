@@ -0,0 +1,19 @@
+package com.github.liebharc.rsettings.immutable;
+
+/**
+ * A setting with a double value which can be changed by an user, 
+ * use @see State.Builder#setDouble(ReadSetting, double) to change it without boxing.
+ */
+public abstract class ReadWriteDoubleSetting 
+	extends DoubleSetting 
+	implements WriteableSetting<Double> {
+	
+	public ReadWriteDoubleSetting(double defaultValue, Dependencies dependencies) {
+		super(defaultValue, dependencies);
+	}
+	
+	@Override
+	public boolean shouldBeStored() {
+		return true;
+	}
+}
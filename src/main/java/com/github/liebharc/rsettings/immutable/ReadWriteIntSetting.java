@@ -0,0 +1,19 @@
+package com.github.liebharc.rsettings.immutable;
+
+/**
+ * A setting with an int value which can be changed by an user, 
+ * use @see State.Builder#setInt(ReadSetting, int) to change it without boxing.
+ */
+public abstract class ReadWriteIntSetting 
+	extends IntSetting 
+	implements WriteableSetting<Integer> {
+	
+	public ReadWriteIntSetting(int defaultValue, Dependencies dependencies) {
+		super(defaultValue, dependencies);
+	}
+	
+	@Override
+	public boolean shouldBeStored() {
+		return true;
+	}
+}
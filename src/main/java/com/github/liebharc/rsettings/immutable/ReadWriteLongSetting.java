@@ -0,0 +1,19 @@
+package com.github.liebharc.rsettings.immutable;
+
+/**
+ * A setting with a long value which can be changed by an user, 
+ * use @see State.Builder#setLong(ReadSetting, long) to change it without boxing.
+ */
+public abstract class ReadWriteLongSetting 
+	extends LongSetting 
+	implements WriteableSetting<Long> {
+	
+	public ReadWriteLongSetting(long defaultValue, Dependencies dependencies) {
+		super(defaultValue, dependencies);
+	}
+	
+	@Override
+	public boolean shouldBeStored() {
+		return true;
+	}
+}
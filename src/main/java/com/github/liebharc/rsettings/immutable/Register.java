@@ -2,19 +2,76 @@ package com.github.liebharc.rsettings.immutable;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
+import com.github.liebharc.rsettings.Reject;
 import com.github.liebharc.rsettings.StateInitException;
 
 public class Register {
 	private final List<ReadSetting<?>> settings;
 	
+	private final Map<String, ReadSetting<?>> settingsByKey;
+	
+	private int numberOfSlots = 0;
+	
+	private final PropagationMode propagationMode;
+	
+	private final PagePool pagePool;
+	
 	public Register() {
+		this(PropagationMode.Sequential);
+	}
+	
+	public Register(PropagationMode propagationMode) {
+		this(propagationMode, null);
+	}
+	
+	/**
+	 * Creates a register.
+	 * @param propagationMode How changes are propagated.
+	 * @param pagePool The pool for off-heap pages or null to keep all values on the heap. 
+	 * 	States with off-heap pages should be released with @see State#release() once they aren't used anymore.
+	 */
+	public Register(PropagationMode propagationMode, PagePool pagePool) {
 		settings = new ArrayList<>();
+		settingsByKey = new HashMap<>();
+		this.propagationMode = propagationMode;
+		this.pagePool = pagePool;
 	}
 	
 	public<TValue, TSetting extends ReadSetting<TValue>> TSetting add(TSetting setting) {
+		return addSetting(setting, null);
+	}
+	
+	/**
+	 * Adds a setting and assigns a key to it, see @see ReadSetting#getKey().
+	 * @param key The key, must be unique within the register and must not contain a '#'.
+	 * @param setting The setting.
+	 * @return The setting.
+	 */
+	public<TValue, TSetting extends ReadSetting<TValue>> TSetting add(String key, TSetting setting) {
+		Reject.ifNull(key);
+		Reject.ifNull(setting);
+		if (key.isEmpty()) {
+			throw new IllegalArgumentException("Key must not be empty");
+		}
+		
+		if (setting.getKey() != null || (!Placeholder.isPlaceholder(setting) && overridesGetKey(setting))) {
+			throw new StateInitException("Setting already has a key");
+		}
+		
+		return addSetting(setting, key);
+	}
+	
+	/**
+	 * Adds a setting. Nothing is changed if the setting can't be added.
+	 * @param newKey The key which is assigned to the setting or null to use the key of the setting.
+	 */
+	private<TValue, TSetting extends ReadSetting<TValue>> TSetting addSetting(TSetting setting, String newKey) {
 		List<String> missingDependencies = 
 			setting.getDependencies()
 				.asList()
@@ -29,10 +86,63 @@ public class Register {
 					+ "Missing dependencies are of type: " 
 					+ String.join(", ", missingDependencies));
 		}
+		
+		String key = newKey != null ? newKey : setting.getKey();
+		if (key == null && !Placeholder.isPlaceholder(setting) && overridesGetKey(setting)) {
+			// Happens if the key is read from a field which isn't initialized yet because the setting adds itself in its constructor 
+			throw new StateInitException(
+					"Setting of type " + setting.getClass().getName() + " overrides getKey() but has no key when it is added");
+		}
+		
+		if (key != null && key.indexOf('#') >= 0) {
+			// Snapshots identify settings without a key by their class and slot separated by a '#'
+			throw new IllegalArgumentException("Key must not contain a '#': " + key);
+		}
+		
+		if (!Placeholder.isPlaceholder(setting)) {
+			if (key != null && settingsByKey.containsKey(key)) {
+				throw new StateInitException("A setting with the key " + key + " has already been added");
+			}
+			
+			setting.assignSlot(numberOfSlots);
+			numberOfSlots++;
+			if (key != null) {
+				settingsByKey.put(key, setting);
+			}
+		}
+		
+		if (newKey != null) {
+			setting.assignKey(newKey);
+		}
+		
 		settings.add(setting);
 		return setting;
 	}
 	
+	private static boolean overridesGetKey(ReadSetting<?> setting) {
+		try {
+			return setting.getClass().getMethod("getKey").getDeclaringClass() != ReadSetting.class;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+	
+	public Optional<ReadSetting<?>> findByKey(String key) {
+		return Optional.ofNullable(settingsByKey.get(key));
+	}
+	
+	Map<String, ReadSetting<?>> getSettingsByKey() {
+		return Collections.unmodifiableMap(new HashMap<>(settingsByKey));
+	}
+	
+	public PropagationMode getPropagationMode() {
+		return propagationMode;
+	}
+	
+	public PagePool getPagePool() {
+		return pagePool;
+	}
+	
 	public List<ReadSetting<?>> asList() {
 		return Collections.unmodifiableList(settings);
 	}
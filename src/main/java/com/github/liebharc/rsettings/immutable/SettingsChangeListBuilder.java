@@ -6,25 +6,27 @@ import java.util.*;
  * A builder to create a list of changed settings. If the same setting is changed twice by an user
  * then only the last change will be recorded since the first change never takes effect if it gets immediately 
  * overwritten.
+ * 
+ * The changes are kept in an insertion ordered set, so recording a change takes constant time
+ * regardless of how many changes have been recorded before.
  */
 public class SettingsChangeListBuilder {
 
-	private final List<ReadSetting<?>> changes;
+	private final Set<ReadSetting<?>> changes;
 	
 	public void add(ReadSetting<?> setting) {
-		if (changes.contains(setting)) {
+		if (!changes.add(setting)) {
 			changes.remove(setting);
+			changes.add(setting);
 		}
-		
-		changes.add(setting);
 	}
 	
 	public SettingsChangeListBuilder() {
-		 changes = new ArrayList<>();
+		 changes = new LinkedHashSet<>();
 	}
 	
 	public List<ReadSetting<?>> build() {
-		return makeImmutable(changes);
+		return makeImmutable(new ArrayList<>(changes));
 	}
 	
 	private List<ReadSetting<?>> makeImmutable(List<ReadSetting<?>> list) {
@@ -3,7 +3,10 @@ package com.github.liebharc.rsettings.immutable;
 import com.github.liebharc.rsettings.CheckFailedException;
 import com.github.liebharc.rsettings.Reject;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * The state remembers the current values of all settings.
@@ -33,16 +36,49 @@ public final class State {
 	    private final long version;
 	    
 	    private final Values.Builder newState;
+	    
+	    private final ChangeLog changeLog;
+	    
+	    private final BitSet touched;
+	    
+		private final Writer directWriter = new Writer() {
+			@Override
+			public void write(ReadSetting<?> setting, Object value) {
+				Builder.this.write(setting, value);
+			}
+			
+			@Override
+			public void writeBits(ReadSetting<?> setting, long bits) {
+				Builder.this.writeBits(setting, bits);
+			}
+		};
 
 		public Builder(
 				State parent,
 				List<ReadSetting<?>> settings, 
 				Values values) {
+			this(parent, settings, values, parent.version + 1, parent.changeLog, new BitSet());
+		}
+		
+		/**
+		 * Creates a builder.
+		 * @param changeLog The change log entry the new state will be appended to or null to start a new log.
+		 * @param touched Slots which should be recorded as touched in addition to the changes of the builder.
+		 */
+		private Builder(
+				State parent,
+				List<ReadSetting<?>> settings, 
+				Values values,
+				long version,
+				ChangeLog changeLog,
+				BitSet touched) {
 			this.parent = parent;
 			this.prevValues =  values;
 			this.newState = values.change();
 			this.settings = settings;
-			this.version = parent.version + 1;
+			this.version = version;
+			this.changeLog = changeLog;
+			this.touched = touched;
 		}
 
 		public 
@@ -50,7 +86,7 @@ public final class State {
 			TSetting extends ReadSetting<TValue> & WriteableSetting<TValue>> 
 				Builder set(TSetting setting, TValue value) {
 			Reject.ifNull(setting);
-			if (!settings.contains(setting)) {
+			if (!isPartOf(settings, setting)) {
 				throw new IllegalArgumentException("Setting is not part of this state");
 			}
 			
@@ -70,78 +106,386 @@ public final class State {
 		
 		@SuppressWarnings("unchecked") // The type cast should always succeed even if the compile can't verify that
 		private <T> T get(ReadSetting<T> setting) {
-			if (newState.containsKey(setting)) {
-				return (T)newState.get(setting).getValue();
+			return (T)newState.getValue(setting);
+		}
+
+		public <TSetting extends ReadSetting<Integer> & WriteableSetting<Integer>> Builder setInt(TSetting setting, int value) {
+			return setBits(setting, PrimitiveType.Int, value);
+		}
+		
+		public <TSetting extends ReadSetting<Long> & WriteableSetting<Long>> Builder setLong(TSetting setting, long value) {
+			return setBits(setting, PrimitiveType.Long, value);
+		}
+		
+		public <TSetting extends ReadSetting<Double> & WriteableSetting<Double>> Builder setDouble(TSetting setting, double value) {
+			return setBits(setting, PrimitiveType.Double, Double.doubleToLongBits(value));
+		}
+		
+		public <TSetting extends ReadSetting<Boolean> & WriteableSetting<Boolean>> Builder setBoolean(TSetting setting, boolean value) {
+			return setBits(setting, PrimitiveType.Boolean, value ? 1 : 0);
+		}
+		
+		/**
+		 * Sets a value without boxing it if the setting stores its values as primitives. 
+		 */
+		private Builder setBits(ReadSetting<?> setting, PrimitiveType type, long bits) {
+			Reject.ifNull(setting);
+			if (!isPartOf(settings, setting)) {
+				throw new IllegalArgumentException("Setting is not part of this state");
 			}
 			
-			return (T)prevValues.get(setting).getValue();
+			setBitsUnchecked(setting, type, bits);
+			return this;
+		}
+		
+		/**
+		 * Sets the bits of a primitive value like @see setUnchecked(ReadSetting, Object). The value 
+		 * is only boxed if the setting doesn't store its values as the given type.
+		 */
+		public void setBitsUnchecked(ReadSetting<?> setting, PrimitiveType type, long bits) {
+			if (setting.getPrimitiveType() == type) {
+				writeBits(setting, bits);
+				allChanges.add(setting);
+			}
+			else {
+				setUnchecked(setting, type.fromBits(bits));
+			}
 		}
 
 		public void setUnchecked(ReadSetting<?> setting, Object value) {
-			newState.update(setting, value, version);
+			PrimitiveType type = setting.getPrimitiveType();
+			if (type != null && value == null) {
+				throw new IllegalArgumentException("Settings with a primitive type don't accept null");
+			}
+			
+			if (type != null && !type.isInstance(value)) {
+				throw new IllegalArgumentException("Settings with a primitive type only accept values of that type");
+			}
+			
+			write(setting, value);
 			allChanges.add(setting);
 		}
 		
+		private void write(ReadSetting<?> setting, Object value) {
+			newState.update(setting, value, version);
+			touched.set(setting.getSlot());
+		}
+		
+		private void writeBits(ReadSetting<?> setting, long bits) {
+			newState.updateBits(setting, bits, version);
+			touched.set(setting.getSlot());
+		}
+		
 		public State build() throws CheckFailedException {
 			List<ReadSetting<?>> allChanges =
 					propagateChanges(
 						newState);
-			return new State(parent, newState.build(), allChanges);
+			ChangeLog newChangeLog = 
+					changeLog != null 
+					? changeLog.append(version, (BitSet)touched.clone()) 
+					: ChangeLog.initial(version);
+			return new State(parent, newState.build(), allChanges, version, newChangeLog);
 		}
 		
-		private List<ReadSetting<?>> propagateChanges(Values.Builder values) throws CheckFailedException {
+		private List<ReadSetting<?>> propagateChanges(ValueLookup values) throws CheckFailedException {
 			List<ReadSetting<?>> directChanges = allChanges.build();
 			
 			directChanges = 
 					directChanges.stream()
-					.filter(s -> !ObjectHelper.NullSafeEquals(prevValues.get(s).getValue(), values.get(s).getValue()))
+					.filter(s -> isDifferent(prevValues, values, s))
 					.collect(Collectors.toList());
 			
 			if (directChanges.isEmpty()) {
 				return directChanges;
 			}
 			
-			boolean hasChanged;
+			List<ReadSetting<?>> changes = allChanges.build();
+			if ((parent.propagationMode == PropagationMode.Wavefront 
+					|| parent.propagationMode == PropagationMode.ParallelWavefront) 
+					&& parent.dependencies.isLayered()) {
+				return propagateByLevel(
+						directChanges, 
+						changes, 
+						parent.propagationMode == PropagationMode.ParallelWavefront);
+			}
+			
+			if (parent.propagationMode == PropagationMode.Parallel) {
+				List<List<ReadSetting<?>>> components = parent.dependencies.groupByComponent(directChanges);
+				if (components.size() > 1) {
+					return propagateInParallel(components, changes);
+				}
+			}
+			
 			DependencyGraph.Path path = parent.dependencies.getDependencies(directChanges);
-			do {
-				ReadSetting<?> setting = path.current();
-				Optional<?> result = setting.update(new State(this.parent, values.build(), allChanges.build()));
-				Object previousValue = newState.get(setting).getValue();
-				if ((result.isPresent())) {
-					values.replace(
-							setting, 
-							result.get(),
-							version);		
+			State inFlight = new State(this.parent, values, changes, version, null);
+			propagate(path, inFlight, values, directWriter);
+			return path.getVisited();
+		}
+		
+		private static boolean isDifferent(ValueLookup first, ValueLookup second, ReadSetting<?> setting) {
+			if (setting.getPrimitiveType() != null) {
+				return first.getBits(setting) != second.getBits(setting);
+			}
+			
+			return !ObjectHelper.NullSafeEquals(first.getValue(setting), second.getValue(setting));
+		}
+		
+		/**
+		 * Propagates the changes level by level. All settings of a level are updated based on the values 
+		 * of the previous levels, their writes are applied after the whole level has been updated. 
+		 * If several settings of a level fail then the error of the setting with the lowest rank is thrown.
+		 */
+		private List<ReadSetting<?>> propagateByLevel(
+				List<ReadSetting<?>> directChanges, 
+				List<ReadSetting<?>> changes,
+				boolean isParallel) throws CheckFailedException {
+			DependencyGraph.Wavefront wavefront = parent.dependencies.getWavefront(directChanges);
+			State inFlight = new State(this.parent, newState, changes, version, null);
+			while (wavefront.moveNext()) {
+				int[] level = wavefront.current();
+				Optional<?>[] results = new Optional<?>[level.length];
+				long[] bits = new long[level.length];
+				Exception[] errors = new Exception[level.length];
+				IntStream indices = IntStream.range(0, level.length);
+				if (isParallel && level.length > 1) {
+					indices = indices.parallel();
+				}
+				
+				indices.forEach(i -> {
+					try {
+						ReadSetting<?> setting = wavefront.getSetting(level[i]);
+						if (setting.getPrimitiveType() != null) {
+							bits[i] = setting.updateBits(inFlight);
+						}
+						else {
+							results[i] = setting.update(inFlight);
+						}
+					} catch (CheckFailedException | RuntimeException e) {
+						errors[i] = e;
+					}
+				});
+				
+				for (Exception error : errors) {
+					if (error instanceof CheckFailedException) {
+						throw (CheckFailedException)error;
+					}
+					
+					if (error != null) {
+						throw (RuntimeException)error;
+					}
 				}
 				
-				hasChanged = !ObjectHelper.NullSafeEquals(values.get(setting).getValue(), previousValue);
+				for (int i = 0; i < level.length; i++) {
+					ReadSetting<?> setting = wavefront.getSetting(level[i]);
+					if (setting.getPrimitiveType() != null) {
+						if (bits[i] != newState.getBits(setting)) {
+							writeBits(setting, bits[i]);
+							wavefront.changed(level[i]);
+						}
+						
+						continue;
+					}
+					
+					Object previousValue = newState.getValue(setting);
+					if (results[i].isPresent()) {
+						write(setting, results[i].get());
+					}
+					
+					if (!ObjectHelper.NullSafeEquals(newState.getValue(setting), previousValue)) {
+						wavefront.changed(level[i]);
+					}
+				}
+			}
+			
+			return wavefront.getVisited();
+		}
+		
+		/**
+		 * Propagates every component in its own task. The tasks only read the values of this builder and 
+		 * record their writes in an overlay, the writes are applied after all tasks have completed.
+		 * If several components fail then the error of the component with the lowest rank is thrown,
+		 * so that the result doesn't depend on the scheduling of the tasks.
+		 */
+		private List<ReadSetting<?>> propagateInParallel(
+				List<List<ReadSetting<?>>> components, 
+				List<ReadSetting<?>> changes) throws CheckFailedException {
+			List<ComponentResult> results = 
+					components.parallelStream()
+					.map(c -> propagateComponent(c, changes))
+					.collect(Collectors.toList());
+			
+			for (ComponentResult result : results) {
+				if (result.error instanceof CheckFailedException) {
+					throw (CheckFailedException)result.error;
+				}
+				
+				if (result.error != null) {
+					throw (RuntimeException)result.error;
+				}
+			}
+			
+			BitSet visited = new BitSet();
+			for (ComponentResult result : results) {
+				for (ReadSetting<?> setting : result.writes.getWrittenSettings()) {
+					write(setting, result.writes.getValue(setting));
+				}
+				
+				result.path.addVisitedTo(visited);
+			}
+			
+			return parent.dependencies.toSettings(visited);
+		}
+		
+		private ComponentResult propagateComponent(List<ReadSetting<?>> component, List<ReadSetting<?>> changes) {
+			ValueOverlay writes = new ValueOverlay(newState, version);
+			DependencyGraph.Path path = parent.dependencies.getDependencies(component);
+			State inFlight = new State(this.parent, writes, changes, version, null);
+			try {
+				propagate(path, inFlight, writes, new Writer() {
+					@Override
+					public void write(ReadSetting<?> setting, Object value) {
+						writes.update(setting, value);
+					}
+					
+					@Override
+					public void writeBits(ReadSetting<?> setting, long bits) {
+						writes.updateBits(setting, bits);
+					}
+				});
+				return new ComponentResult(writes, path, null);
+			} catch (CheckFailedException | RuntimeException e) {
+				return new ComponentResult(writes, path, e);
+			}
+		}
+		
+		private static void propagate(
+				DependencyGraph.Path path, 
+				State inFlight, 
+				ValueLookup values, 
+				Writer writer) throws CheckFailedException {
+			boolean hasChanged;
+			do {
+				hasChanged = update(path.current(), inFlight, values, writer);
 			} while (path.moveNext(hasChanged));
+		}
+		
+		/**
+		 * Updates a setting. Settings with a primitive type are updated without boxing their values.
+		 * @return true if the value of the setting has changed.
+		 */
+		private static boolean update(
+				ReadSetting<?> setting, 
+				State inFlight, 
+				ValueLookup values, 
+				Writer writer) throws CheckFailedException {
+			if (setting.getPrimitiveType() != null) {
+				long bits = setting.updateBits(inFlight);
+				if (bits == values.getBits(setting)) {
+					return false;
+				}
+				
+				writer.writeBits(setting, bits);
+				return true;
+			}
 			
-			return path.getVisited();
+			Optional<?> result = setting.update(inFlight);
+			Object previousValue = values.getValue(setting);
+			if ((result.isPresent())) {
+				writer.write(setting, result.get());
+			}
+			
+			return !ObjectHelper.NullSafeEquals(values.getValue(setting), previousValue);
 		}
 	}
 	
-	private static Values createResetValues(List<ReadSetting<?>> settings) {
-		Values.Builder values = new Values().change();
-		for (ReadSetting<?> setting : settings) {
-			values.put(setting, setting.getDefaultValue(), 0);
-		}
+	/**
+	 * Receives the values which are computed while changes are propagated.
+	 */
+	private interface Writer {
 		
-		return values.build();
+		void write(ReadSetting<?> setting, Object value);
+		
+		void writeBits(ReadSetting<?> setting, long bits);
 	}
 	
+	private static final class ComponentResult {
+		
+		private final ValueOverlay writes;
+		
+		private final DependencyGraph.Path path;
+		
+		/**
+		 * A @see CheckFailedException or a @see RuntimeException or null if the component has been propagated.
+		 */
+		private final Exception error;
+		
+		private ComponentResult(ValueOverlay writes, DependencyGraph.Path path, Exception error) {
+			this.writes = writes;
+			this.path = path;
+			this.error = error;
+		}
+	}
+	
+	private static final AtomicLong NEXT_KIND = new AtomicLong();
+	
+	private static final Comparator<State> AGE = 
+			Comparator.<State>comparingLong(s -> s.kind).thenComparingLong(s -> s.version);
+	
 	private final List<ReadSetting<?>> settings;
 	
-    private final Values values;
+	private final Map<String, ReadSetting<?>> settingsByKey;
+	
+    private final ValueLookup values;
     
     private final DependencyGraph dependencies;
 	
 	private final List<ReadSetting<?>> lastChanges;
 	
-	private final UUID kind;
+	private final BitSet lastChangedSlots;
+	
+	private final ChangeLog changeLog;
+	
+	/**
+	 * Identifies the initial state from which a state has been derived. Initial states which are 
+	 * created later get a higher kind.
+	 */
+	private final long kind;
     
     private final long version;
     
+    private final PropagationMode propagationMode;
+    
+    /**
+     * Checks whether a setting is part of a list of settings. The list must be ordered
+     * by slot, so that the check only needs to look at the slot of the setting.
+     */
+    private static boolean isPartOf(List<ReadSetting<?>> settings, ReadSetting<?> setting) {
+    	int slot = setting.getSlot();
+    	return slot >= 0 && slot < settings.size() && settings.get(slot) == setting;
+    }
+    
+    /**
+     * Makes sure that a setting, or the setting substituted by a placeholder, belongs to this state. 
+     * The slot alone isn't enough since a setting of another register may have the same slot.
+     */
+    private void checkIsPartOf(ReadSetting<?> setting) {
+    	if (!contains(setting)) {
+    		throw new IllegalArgumentException("Setting is not part of this state");
+    	}
+    }
+    
+    private static BitSet toSlots(List<ReadSetting<?>> settings) {
+    	BitSet slots = new BitSet();
+    	for (ReadSetting<?> setting : settings) {
+    		int slot = setting.getSlot();
+    		if (slot >= 0) {
+    			slots.set(slot);
+    		}
+    	}
+    	
+    	return slots;
+    }
+    
     private static List<ReadSetting<?>> removePlaceholders(Iterable<ReadSetting<?>> settings) {
     	List<ReadSetting<?>> list = new ArrayList<>();
     	settings.forEach((s) -> {
@@ -154,38 +498,123 @@ public final class State {
     }
 	
 	public State(Register settings) {
-		this(settings.asList());
+		this(settings.asList(), settings.getSettingsByKey(), settings.getPropagationMode(), settings.getPagePool());
 	}
 	
-	private State(List<ReadSetting<?>> settings) {
+	private State(
+			List<ReadSetting<?>> settings, 
+			Map<String, ReadSetting<?>> settingsByKey,
+			PropagationMode propagationMode, 
+			PagePool pagePool) {
 		this.settings = removePlaceholders(settings);
-		this.values = createResetValues(this.settings);
-		this.kind = UUID.randomUUID();
+		this.settingsByKey = settingsByKey;
+		this.propagationMode = propagationMode;
+		this.values = Values.create(this.settings, pagePool);
+		this.kind = NEXT_KIND.incrementAndGet();
 		this.dependencies = new DependencyGraph(settings);
 		this.version = 0;
 		this.lastChanges = settings;
+		this.lastChangedSlots = toSlots(settings);
+		this.changeLog = ChangeLog.initial(version);
 	}
 	
+	/**
+	 * Creates a new state. If values is a @see Values.Builder then the state reads through to the builder,
+	 * such a state must only be used while the builder is propagating its changes.
+	 * The change log may be null, in that case comparisons with other states check all settings. 
+	 */
 	State(
 			State parent, 
-			Values values,
-			List<ReadSetting<?>> lastChanges) {
+			ValueLookup values,
+			List<ReadSetting<?>> lastChanges,
+			long version,
+			ChangeLog changeLog) {
 		this.settings = parent.settings;
+		this.settingsByKey = parent.settingsByKey;
 		this.values = values;
 		this.kind = parent.kind;
-		this.version = parent.version + 1;
+		this.version = version;
 		this.dependencies = parent.dependencies;
+		this.propagationMode = parent.propagationMode;
 		this.lastChanges = lastChanges;
+		this.lastChangedSlots = toSlots(lastChanges);
+		this.changeLog = changeLog;
 	}
 	
 	public Builder change() {
-		return new Builder(this, settings, values);
+		return new Builder(this, settings, values.snapshot());
+	}
+	
+	/**
+	 * Releases the off-heap pages of this state which aren't shared with other states. 
+	 * The state must not be used afterwards, neither directly nor by a builder which has been 
+	 * created from it. States of a register without a @see PagePool don't need to be released.
+	 */
+	public void release() {
+		values.release();
+	}
+	
+	/**
+	 * The version increases with every change. A state which is created by @see merge(State) gets 
+	 * a version which is higher than the version of both merged states.
+	 * @return The version of the state.
+	 */
+	public long getVersion() {
+		return version;
 	}
 	
 	@SuppressWarnings("unchecked") // The type cast should always succeed even if the compile can't verify that
 	public <T> T get(ReadSetting<T> setting) {
 		Reject.ifNull(setting);
-		return (T)values.get(setting).getValue();
+		checkIsPartOf(setting);
+		return (T)values.getValue(setting);
+	}
+	
+	public int getInt(ReadSetting<Integer> setting) {
+		Reject.ifNull(setting);
+		checkIsPartOf(setting);
+		if (setting.getPrimitiveType() == PrimitiveType.Int) {
+			return (int)values.getBits(setting);
+		}
+		
+		return get(setting);
+	}
+	
+	public long getLong(ReadSetting<Long> setting) {
+		Reject.ifNull(setting);
+		checkIsPartOf(setting);
+		if (setting.getPrimitiveType() == PrimitiveType.Long) {
+			return values.getBits(setting);
+		}
+		
+		return get(setting);
+	}
+	
+	public double getDouble(ReadSetting<Double> setting) {
+		Reject.ifNull(setting);
+		checkIsPartOf(setting);
+		if (setting.getPrimitiveType() == PrimitiveType.Double) {
+			return Double.longBitsToDouble(values.getBits(setting));
+		}
+		
+		return get(setting);
+	}
+	
+	public boolean getBoolean(ReadSetting<Boolean> setting) {
+		Reject.ifNull(setting);
+		checkIsPartOf(setting);
+		if (setting.getPrimitiveType() == PrimitiveType.Boolean) {
+			return values.getBits(setting) != 0;
+		}
+		
+		return get(setting);
+	}
+	
+	/**
+	 * Returns the bits of a setting with a @see PrimitiveType.
+	 */
+	long getBits(ReadSetting<?> setting) {
+		return values.getBits(setting);
 	}
 	
 	public <TValue extends Comparable<TValue>, 
@@ -226,9 +655,14 @@ public final class State {
 	public List<ReadSetting<?>> getChanges(State since) {
 		Reject.ifNull(since);
 		
-		return settings.stream()
-				.filter(s -> hasChanged(s, since))
-				.collect(Collectors.toList());
+		BitSet candidates = getTouchedSlotsSince(since);
+		if (candidates == null) {
+			return settings.stream()
+					.filter(s -> hasChanged(s, since))
+					.collect(Collectors.toList());
+		}
+		
+		return filter(candidates, s -> hasChanged(s, since));
 	}
 	
 	/**
@@ -239,18 +673,60 @@ public final class State {
 	public List<ReadSetting<?>> getTouchedSettings(State since) {
 		Reject.ifNull(since);
 		
-		return settings.stream()
-				.filter(s -> hasBeenTouched(s, since))
-				.collect(Collectors.toList());
+		BitSet candidates = getTouchedSlotsSince(since);
+		if (candidates == null) {
+			return settings.stream()
+					.filter(s -> hasBeenTouched(s, since))
+					.collect(Collectors.toList());
+		}
+		
+		return filter(candidates, s -> hasBeenTouched(s, since));
+	}
+	
+	/**
+	 * Uses the change log to find the slots which might have been changed since the given state.
+	 * @param since A previous state.
+	 * @return The touched slots or null if since isn't an ancestor which is still in the log.
+	 */
+	private BitSet getTouchedSlotsSince(State since) {
+		requireStateToBeOlder(since);
+		if (changeLog == null || since.changeLog == null) {
+			return null;
+		}
+		
+		return changeLog.touchedSince(since.changeLog);
+	}
+	
+	private List<ReadSetting<?>> filter(BitSet slots, Predicate<ReadSetting<?>> predicate) {
+		List<ReadSetting<?>> result = new ArrayList<>();
+		for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+			ReadSetting<?> setting = settings.get(slot);
+			if (predicate.test(setting)) {
+				result.add(setting);
+			}
+		}
+		
+		return result;
 	}
 
 	/**
 	 * Indicates whether or not a setting has changed during the call of @see change().
 	 * @param setting A setting.
-	 * @return True if the setting has changed.
+	 * @return True if the setting has changed, false if it isn't part of this state.
 	 */
 	public boolean hasChanged(ReadSetting<?> setting) {
-		return lastChanges.stream().anyMatch(s -> s.getId() == setting.getId());
+		Reject.ifNull(setting);
+		return contains(setting) && lastChangedSlots.get(setting.getSlot());
+	}
+	
+	/**
+	 * Returns the slots of all settings which have changed during the call of @see change(). 
+	 * This allows to check many settings at once, e.g. by intersecting the result with the slots 
+	 * a listener is interested in. See @see ReadSetting.getSlot() for more details.
+	 * @return A copy of the changed slots.
+	 */
+	public BitSet getChangedSlots() {
+		return (BitSet)lastChangedSlots.clone();
 	}
 
 	/**
@@ -274,7 +750,13 @@ public final class State {
 	 * @return True if any setting has changed.
 	 */
 	public boolean hasAnyChanged(List<ReadSetting<?>> list) {
-		return list.stream().anyMatch(s -> hasChanged(s));
+		for (ReadSetting<?> setting : list) {
+			if (hasChanged(setting)) {
+				return true;
+			}
+		}
+		
+		return false;
 	}
 
 	/**
@@ -289,12 +771,34 @@ public final class State {
 		Reject.ifNull(since);
 		Reject.ifNull(setting);
 		requireStateToBeOlder(since);
+		checkIsPartOf(setting);
 		
-		return this.values.get(setting).getVersion() > since.values.get(setting).getVersion();
+		return this.values.getVersion(setting) > since.values.getVersion(setting);
 	}
 
+	/**
+	 * Indicates whether two states have been derived from the same initial state. Only such states 
+	 * can be compared or merged.
+	 * @param other Another state.
+	 * @return True if both states have the same initial state.
+	 */
+	public boolean isSameKind(State other) {
+		Reject.ifNull(other);
+		return kind == other.kind;
+	}
+	
+	/**
+	 * Orders states by their age. A state which has been derived from a newer initial state, e.g. after 
+	 * a mutable state has been reinitialized, is newer than all states of an older initial state. 
+	 * States of the same kind are ordered by their version.
+	 * @return The comparator.
+	 */
+	public static Comparator<State> byAge() {
+		return AGE;
+	}
+	
 	private void requireStateToBeOlder(State since) {
-		if (!since.kind.equals(this.kind) )
+		if (since.kind != this.kind)
 			throw new IllegalArgumentException("Can't merge two states which don't have a common ancestor");
 		
 		if (since.version > this.version)
@@ -305,29 +809,102 @@ public final class State {
 		return settings;
 	}
 	
+	/**
+	 * Indicates whether a setting, or the setting substituted by a placeholder, belongs to the register
+	 * of this state. A setting of another register isn't part of the state even if it has the same slot.
+	 * @param setting A setting.
+	 * @return True if the setting is part of this state.
+	 */
+	public boolean contains(ReadSetting<?> setting) {
+		return isPartOf(settings, Placeholder.resolve(setting));
+	}
+	
+	/**
+	 * Looks up a setting by its key, see @see ReadSetting#getKey().
+	 * @param key A key.
+	 * @return The setting or nothing if no setting of this state has the key.
+	 */
+	public Optional<ReadSetting<?>> findByKey(String key) {
+		return Optional.ofNullable(settingsByKey.get(key));
+	}
+	
 	/**
 	 * Merges two settings. In case of a conflict the values from this instance are used.
+	 * 
+	 * If other is an ancestor of this state then this state is returned unchanged. Otherwise the 
+	 * change logs are used to find the common ancestor and only the settings which have been touched 
+	 * by other since then are merged. The result is a successor of other with a higher version than both states,
+	 * its changes are the differences to other.
 	 * @param other Another @see SettingState, must be derived from the same base @see SettingState.
-	 * @return
+	 * @return The merged state.
 	 * @throws CheckFailedException if the resulting state after the merge isn't valid.
 	 */
 	public State merge(State other) throws CheckFailedException {
 		Reject.ifNull(other);
 				
-		if (!other.kind.equals(this.kind) ) {
+		if (other.kind != this.kind) {
 			throw new CheckFailedException("Can't merge two states which don't have a common ancestor");
 		}
 		
-		Builder builder = change();
-		for (ReadSetting<?> setting : settings) {
-			VersionedValue otherValue = other.values.get(setting);
-			VersionedValue thisValue = this.values.get(setting);
-			if (otherValue.getVersion() > thisValue.getVersion()) {
-				builder.setUnchecked(setting, otherValue.getValue());
+		long mergeVersion = Math.max(version, other.version) + 1;
+		ChangeLog commonAncestor = findCommonAncestor(changeLog, other.changeLog);
+		if (commonAncestor == null) {
+			Builder builder = new Builder(this, settings, values.snapshot(), mergeVersion, null, new BitSet());
+			for (ReadSetting<?> setting : settings) {
+				mergeSetting(builder, setting, other);
+			}
+			
+			return builder.build().asSuccessorOf(other);
+		}
+		
+		if (commonAncestor.isSameEntry(other.changeLog)) {
+			return this;
+		}
+		
+		Builder builder = new Builder(
+				this, 
+				settings, 
+				values.snapshot(), 
+				mergeVersion, 
+				other.changeLog, 
+				changeLog.touchedSince(commonAncestor));
+		BitSet candidates = other.changeLog.touchedSince(commonAncestor);
+		for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+			mergeSetting(builder, settings.get(slot), other);
+		}
+		
+		return builder.build().asSuccessorOf(other);
+	}
+	
+	/**
+	 * Returns this state with the differences to other as its last changes, so that 
+	 * @see getChanges() and @see hasChanged(ReadSetting) describe the step from other to this state.
+	 */
+	private State asSuccessorOf(State other) {
+		return new State(other, values, getChanges(other), version, changeLog);
+	}
+	
+	private void mergeSetting(Builder builder, ReadSetting<?> setting, State other) {
+		if (other.values.getVersion(setting) > this.values.getVersion(setting)) {
+			builder.setUnchecked(setting, other.values.getValue(setting));
+		}
+	}
+	
+	private static ChangeLog findCommonAncestor(ChangeLog first, ChangeLog second) {
+		while (first != null && second != null) {
+			if (first.isSameEntry(second)) {
+				return first;
+			}
+			
+			if (first.getVersion() >= second.getVersion()) {
+				first = first.getPrevious();
+			}
+			else {
+				second = second.getPrevious();
 			}
 		}
 		
-		return builder.build();
+		return null;
 	}
 	
 	/**
@@ -338,7 +915,7 @@ public final class State {
 	public Set<Map.Entry<ReadSetting<?>, Object>> getPersistenceValues() {
 		return settings.stream()
 			.filter((s) -> s.shouldBeStored())
-			.map(s -> new AbstractMap.SimpleEntry<ReadSetting<?>, Object>(s, values.get(s).getValue()))
+			.map(s -> new AbstractMap.SimpleEntry<ReadSetting<?>, Object>(s, values.getValue(s)))
 			.collect(Collectors.toSet());
 	}
 }
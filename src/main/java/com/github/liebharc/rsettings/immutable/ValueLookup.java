@@ -0,0 +1,37 @@
+package com.github.liebharc.rsettings.immutable;
+
+/**
+ * Read access to the values of a state. This allows a state to read either from
+ * built @see Values or from a @see Values.Builder which is still being changed.
+ */
+interface ValueLookup {
+
+	Object getValue(ReadSetting<?> setting);
+
+	/**
+	 * Returns the version of the state in which the value of a setting has been written.
+	 * @param setting A setting.
+	 * @return The version.
+	 */
+	long getVersion(ReadSetting<?> setting);
+
+	/**
+	 * Returns the value of a setting with a @see PrimitiveType without boxing it.
+	 * @param setting A primitive setting.
+	 * @return The bits of the value.
+	 */
+	long getBits(ReadSetting<?> setting);
+
+	/**
+	 * Returns values which won't change anymore.
+	 * @return The current values.
+	 */
+	Values snapshot();
+
+	/**
+	 * Releases the off-heap memory which is owned by this lookup. Lookups which don't own 
+	 * any memory ignore the call.
+	 */
+	default void release() {
+	}
+}
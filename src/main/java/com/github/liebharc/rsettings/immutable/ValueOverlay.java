@@ -0,0 +1,81 @@
+package com.github.liebharc.rsettings.immutable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records writes without changing the underlying values. Reads return the recorded 
+ * value if there is one and otherwise the underlying value. This allows several threads
+ * to propagate changes based on the same values, the writes are applied afterwards.
+ */
+final class ValueOverlay implements ValueLookup {
+	
+	private final ValueLookup values;
+	
+	private final long version;
+	
+	private final Map<Integer, Object> writes = new LinkedHashMap<>();
+	
+	private final Map<Integer, ReadSetting<?>> writtenSettings = new LinkedHashMap<>();
+	
+	/**
+	 * Creates an overlay.
+	 * @param values The underlying values.
+	 * @param version The version of all writes.
+	 */
+	ValueOverlay(ValueLookup values, long version) {
+		this.values = values;
+		this.version = version;
+	}
+	
+	void update(ReadSetting<?> setting, Object value) {
+		int slot = setting.getSlot();
+		writes.put(slot, value);
+		writtenSettings.putIfAbsent(slot, setting);
+	}
+	
+	void updateBits(ReadSetting<?> setting, long bits) {
+		update(setting, setting.getPrimitiveType().fromBits(bits));
+	}
+	
+	/**
+	 * Returns the settings which have been written in the order of their first write.
+	 * @return All written settings.
+	 */
+	Iterable<ReadSetting<?>> getWrittenSettings() {
+		return writtenSettings.values();
+	}
+	
+	@Override
+	public Object getValue(ReadSetting<?> setting) {
+		int slot = setting.getSlot();
+		return writes.containsKey(slot) ? writes.get(slot) : values.getValue(setting);
+	}
+	
+	@Override
+	public long getVersion(ReadSetting<?> setting) {
+		return writes.containsKey(setting.getSlot()) ? version : values.getVersion(setting);
+	}
+	
+	@Override
+	public long getBits(ReadSetting<?> setting) {
+		int slot = setting.getSlot();
+		return writes.containsKey(slot) 
+				? setting.getPrimitiveType().toBits(writes.get(slot)) 
+				: values.getBits(setting);
+	}
+	
+	/**
+	 * Returns the underlying values with the recorded writes applied to a copy of them. The copy
+	 * doesn't need to be released, it is only valid while the changes are propagated.
+	 */
+	@Override
+	public Values snapshot() {
+		Values.Builder builder = values.snapshot().view().change();
+		for (ReadSetting<?> setting : writtenSettings.values()) {
+			builder.update(setting, writes.get(setting.getSlot()), version);
+		}
+		
+		return builder.snapshot();
+	}
+}
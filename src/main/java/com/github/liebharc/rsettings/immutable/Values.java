@@ -1,72 +1,550 @@
 package com.github.liebharc.rsettings.immutable;
 
-import java.util.*;
- 
-class Values {	
-	static class Builder {
-		
-		private final Map<SettingId, VersionedValue> values;
-		
+import java.nio.LongBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Stores the values of all settings of a state.
+ *
+ * The values are kept in a persistent radix trie. A builder only copies the nodes on the path
+ * to a value it changes, all other nodes are shared with the values it has been created from.
+ * Older values therefore stay valid and are cheap to keep around.
+ * 
+ * Values are addressed by the slot of a setting, so a lookup is a short chain of array loads
+ * without any hashing.
+ * 
+ * A leaf stores its values in columns: the versions in a long array, the values of settings with
+ * a @see PrimitiveType as bits in another long array and all other values in an object array. 
+ * Writing a value therefore only changes two array cells and doesn't allocate, reading and writing 
+ * primitive values with @see getBits and @see Builder#updateBits doesn't box them.
+ * 
+ * Values which are created with a @see PagePool keep the versions and the bits of a leaf in an
+ * off-heap page instead of the two long arrays, leaves without object values don't have an object 
+ * array at all. Nodes then count the values and nodes which reference them, so that @see release() 
+ * can return the pages which aren't shared anymore. A builder keeps the nodes it changes on the heap 
+ * and only moves them to pages when it is built, so dropping a builder never leaks pages.
+ */
+class Values implements ValueLookup {
+
+	private static final int BITS = 5;
+
+	private static final int WIDTH = 1 << BITS;
+
+	private static final int MASK = WIDTH - 1;
+
+	/**
+	 * The number of longs in an off-heap page: the bits followed by the versions of a leaf.
+	 */
+	static final int PAGE_SIZE = 2 * WIDTH;
+
+	/**
+	 * A node of the trie. The leaves store the values, all other nodes store child nodes in the array.
+	 * A node may only be modified in place by the builder which created it.
+	 */
+	private static final class Node {
+
+		private static final AtomicIntegerFieldUpdater<Node> REFERENCES =
+				AtomicIntegerFieldUpdater.newUpdater(Node.class, "references");
+
+		private final Object edit;
+
+		private final Object[] array;
+
+		/**
+		 * The bits of the primitive values of a leaf or null if the leaf has no primitive settings.
+		 */
+		private final long[] bits;
+
+		/**
+		 * The versions of the values of a leaf or null if the node isn't a leaf.
+		 */
+		private final long[] versions;
+
+		/**
+		 * The slab which contains the off-heap page of a leaf or null if the node is on the heap.
+		 */
+		private final LongBuffer slab;
+
+		/**
+		 * The off-heap page which replaces bits and versions, see @see PagePool.
+		 */
+		private final int page;
+
+		/**
+		 * The position of the page in the slab.
+		 */
+		private final int offset;
+
+		/**
+		 * The number of nodes and values which reference this node. Only counted for off-heap values.
+		 */
+		private volatile int references;
+
+		/**
+		 * Whether the node is a copy which a builder of off-heap values keeps on the heap until it is built.
+		 */
+		private boolean isDraft = false;
+
+		/**
+		 * Creates a node on the heap.
+		 */
+		Node(Object edit, Object[] array, long[] bits, long[] versions) {
+			this.edit = edit;
+			this.array = array;
+			this.bits = bits;
+			this.versions = versions;
+			this.slab = null;
+			this.page = -1;
+			this.offset = 0;
+		}
+
+		/**
+		 * Creates a leaf with an off-heap page.
+		 * @param array The object values or null if the leaf only has primitive settings.
+		 */
+		Node(Object edit, Object[] array, PagePool pool, int page) {
+			this.edit = edit;
+			this.array = array;
+			this.bits = null;
+			this.versions = null;
+			this.slab = pool.getSlab(page);
+			this.page = page;
+			this.offset = PagePool.offsetOf(page);
+		}
+
+		long getBits(int position) {
+			return slab != null ? slab.get(offset + position) : bits[position];
+		}
+
+		void setBits(int position, long value) {
+			if (slab != null) {
+				slab.put(offset + position, value);
+			}
+			else {
+				bits[position] = value;
+			}
+		}
+
+		long getVersion(int position) {
+			return slab != null ? slab.get(offset + WIDTH + position) : versions[position];
+		}
+
+		void setVersion(int position, long value) {
+			if (slab != null) {
+				slab.put(offset + WIDTH + position, value);
+			}
+			else {
+				versions[position] = value;
+			}
+		}
+
+		/**
+		 * Copies the node to the heap. The copy doesn't count as reference to the child nodes,
+		 * see @see publish(PagePool).
+		 */
+		Node copy(Object edit) {
+			if (slab != null) {
+				long[] bits = new long[WIDTH];
+				long[] versions = new long[WIDTH];
+				for (int i = 0; i < WIDTH; i++) {
+					bits[i] = getBits(i);
+					versions[i] = getVersion(i);
+				}
+
+				return new Node(edit, array != null ? array.clone() : null, bits, versions);
+			}
+
+			return new Node(
+					edit, 
+					array != null ? array.clone() : null, 
+					bits != null ? bits.clone() : null, 
+					versions != null ? versions.clone() : null);
+		}
+
+		/**
+		 * Turns a draft and all drafts below it into off-heap nodes: draft leaves are copied to a page 
+		 * and draft inner nodes start to count their children. Other nodes are returned as they are.
+		 * @return The node which replaces this node, it isn't referenced yet.
+		 */
+		Node publish(PagePool pool) {
+			if (!isDraft) {
+				return this;
+			}
+
+			if (versions != null) {
+				Node leaf = new Node(edit, array, pool, pool.acquire());
+				for (int i = 0; i < WIDTH; i++) {
+					leaf.setBits(i, bits != null ? bits[i] : 0);
+					leaf.setVersion(i, versions[i]);
+				}
+
+				return leaf;
+			}
+
+			for (int i = 0; i < WIDTH; i++) {
+				if (array[i] != null) {
+					Node child = ((Node)array[i]).publish(pool);
+					child.retain();
+					array[i] = child;
+				}
+			}
+
+			isDraft = false;
+			return this;
+		}
+
+		void retain() {
+			REFERENCES.incrementAndGet(this);
+		}
+
+		/**
+		 * Removes a reference. If it was the last one then the references of this node
+		 * are removed as well and its page is returned to the pool.
+		 */
+		void release(PagePool pool) {
+			if (REFERENCES.decrementAndGet(this) != 0) {
+				return;
+			}
+
+			if (slab != null) {
+				pool.release(page);
+				return;
+			}
+
+			for (Object child : array) {
+				if (child != null) {
+					((Node)child).release(pool);
+				}
+			}
+		}
+	}
+
+	static class Builder implements ValueLookup {
+
+		private final int size;
+
+		private final int shift;
+
+		private Node root;
+
+		/**
+		 * Volatile because several threads may take a snapshot while changes are propagated in parallel.
+		 */
+		private volatile Object edit = new Object();
+
+		/**
+		 * The pool for the built values or null if the builder keeps its copies on the heap and doesn't count references.
+		 */
+		private final PagePool pool;
+
+		/**
+		 * Creates a builder. The builder doesn't count as reference to its root, so the values 
+		 * must not be released while the builder is used. 
+		 * 
+		 * Copies are kept on the heap as drafts until the builder is built, so a builder which is
+		 * dropped, e.g. because a check has failed, doesn't take any pages. A builder of values which 
+		 * don't count as reference, like a snapshot of another builder, builds values on the heap. 
+		 */
 		private Builder(Values values) {
-			this.values = new HashMap<>(values.values);
+			this.size = values.size;
+			this.shift = values.shift;
+			this.root = values.root;
+			this.pool = values.released != null ? values.pool : null;
 		}
-	
+
 		public void update(ReadSetting<?> setting, Object value, long version) {
-			if (values.containsKey(setting.getId())) {
-				replace(setting, value, version);
-			} else {
-				put(setting, value, version);
+			PrimitiveType type = setting.getPrimitiveType();
+			if (type != null) {
+				updateBits(setting, type.toBits(value), version);
+				return;
 			}
+
+			int i = slotOf(setting, size);
+			Node leaf = editableLeaf(i);
+			leaf.array[i & MASK] = value;
+			leaf.setVersion(i & MASK, version);
 		}
 
-		public void putAll(Values values) {
-			this.values.putAll(values.values);
+		public void updateBits(ReadSetting<?> setting, long bits, long version) {
+			int i = slotOf(setting, size);
+			Node leaf = editableLeaf(i);
+			leaf.setBits(i & MASK, bits);
+			leaf.setVersion(i & MASK, version);
 		}
 
-		public void replace(ReadSetting<?> setting, Object value, long version) {
-			values.replace(setting.getId(), new VersionedValue(version, value));		
+		/**
+		 * Copies all nodes on the path to a leaf which haven't been created by this builder.
+		 * @param i A slot.
+		 * @return The leaf which contains the slot, it may be modified.
+		 */
+		private Node editableLeaf(int i) {
+			root = editable(root);
+			Node node = root;
+			for (int level = shift; level > 0; level -= BITS) {
+				int position = (i >>> level) & MASK;
+				Node current = (Node)node.array[position];
+				Node child = editable(current);
+				if (child != current) {
+					node.array[position] = child;
+				}
+
+				node = child;
+			}
+
+			return node;
 		}
 
-		public void put(ReadSetting<?> setting, Object 	value, long version) {
-			values.put(setting.getId(), new VersionedValue(version, value));
+		private Node editable(Node node) {
+			if (node.edit == edit) {
+				return node;
+			}
+
+			Node copy = node.copy(edit);
+			copy.isDraft = pool != null;
+			return copy;
 		}
 
-		public void replace(ReadSetting<?> setting, VersionedValue value) {
-			values.replace(setting.getId(), value);
+		@Override
+		public Object getValue(ReadSetting<?> setting) {
+			return Values.getValue(root, shift, setting, size);
 		}
-		
-		public boolean containsKey(ReadSetting<?> setting) {
-			return values.containsKey(setting.getId());
+
+		@Override
+		public long getVersion(ReadSetting<?> setting) {
+			return Values.getVersion(root, shift, setting, size);
+		}
+
+		@Override
+		public long getBits(ReadSetting<?> setting) {
+			return Values.getBits(root, shift, setting, size);
 		}
 
-		public VersionedValue get(ReadSetting<?> setting) {
-			return values.get(setting.getId());
+		/**
+		 * Returns the current values without counting them as reference to the nodes. The snapshot
+		 * doesn't need to be released and is only valid until the builder is built.
+		 */
+		@Override
+		public Values snapshot() {
+			edit = new Object();
+			return new Values(size, root, shift, pool, false);
 		}
-		
+
+		/**
+		 * Creates the values. The builder can still be used afterwards, further changes
+		 * will then be applied to copies of the nodes.
+		 * @return The values.
+		 */
 		public Values build() {
-			return new Values(values);
+			edit = new Object();
+			if (pool != null) {
+				root = root.publish(pool);
+				root.retain();
+			}
+
+			return new Values(size, root, shift, pool, true);
 		}
 	}
-	
-	private final Map<SettingId, VersionedValue> values;
-	
-	public Values() {
-		values = new HashMap<>();
+
+	/**
+	 * Creates the values for a list of settings, every setting will have its default value.
+	 * @param settings The settings in the order of their slots, must not contain placeholders.
+	 * @return The values.
+	 */
+	static Values create(List<ReadSetting<?>> settings) {
+		return create(settings, null);
 	}
-	
-	private Values(Map<SettingId, VersionedValue> values) {
-		this.values = values;
+
+	/**
+	 * Creates the values for a list of settings, every setting will have its default value.
+	 * @param settings The settings in the order of their slots, must not contain placeholders.
+	 * @param pool The pool for off-heap pages or null to keep all values on the heap.
+	 * @return The values.
+	 */
+	static Values create(List<ReadSetting<?>> settings, PagePool pool) {
+		ReadSetting<?>[] entries = new ReadSetting<?>[settings.size()];
+		for (ReadSetting<?> setting : settings) {
+			entries[slotOf(setting, entries.length)] = setting;
+		}
+
+		int shift = 0;
+		while ((long)WIDTH << shift < entries.length) {
+			shift += BITS;
+		}
+
+		return new Values(entries.length, createNode(entries, 0, shift, pool), shift, pool, true);
 	}
 
-	public boolean containsKey(ReadSetting<?> setting) {
-		return values.containsKey(setting.getId());
+	private static Node createNode(ReadSetting<?>[] entries, int offset, int level, PagePool pool) {
+		Node node;
+		if (level == 0 && pool != null) {
+			Object[] array = null;
+			for (int i = 0; i < WIDTH && offset + i < entries.length; i++) {
+				if (entries[offset + i].getPrimitiveType() == null) {
+					array = new Object[WIDTH];
+					break;
+				}
+			}
+
+			node = new Node(null, array, pool, pool.acquire());
+			for (int i = 0; i < WIDTH; i++) {
+				ReadSetting<?> setting = offset + i < entries.length ? entries[offset + i] : null;
+				PrimitiveType type = setting != null ? setting.getPrimitiveType() : null;
+				if (type == null) {
+					if (setting != null) {
+						array[i] = setting.getDefaultValue();
+					}
+
+					node.setBits(i, 0);
+				}
+				else {
+					node.setBits(i, type.toBits(setting.getDefaultValue()));
+				}
+
+				node.setVersion(i, 0);
+			}
+		}
+		else if (level == 0) {
+			Object[] array = new Object[WIDTH];
+			long[] bits = null;
+			for (int i = 0; i < WIDTH && offset + i < entries.length; i++) {
+				ReadSetting<?> setting = entries[offset + i];
+				PrimitiveType type = setting.getPrimitiveType();
+				if (type == null) {
+					array[i] = setting.getDefaultValue();
+				}
+				else {
+					if (bits == null) {
+						bits = new long[WIDTH];
+					}
+
+					bits[i] = type.toBits(setting.getDefaultValue());
+				}
+			}
+
+			node = new Node(null, array, bits, new long[WIDTH]);
+		}
+		else {
+			Object[] array = new Object[WIDTH];
+			int span = 1 << level;
+			for (int i = 0; i < WIDTH && offset + i * span < entries.length; i++) {
+				array[i] = createNode(entries, offset + i * span, level - BITS, pool);
+			}
+
+			node = new Node(null, array, null, null);
+		}
+
+		node.references = 1;
+		return node;
 	}
 
-	public VersionedValue get(ReadSetting<?> setting) {
-		return values.get(setting.getId());
+	private static int slotOf(ReadSetting<?> setting, int size) {
+		int slot = setting.getSlot();
+		if (slot < 0 || slot >= size) {
+			throw new IllegalArgumentException("Setting is not part of this state");
+		}
+
+		return slot;
+	}
+
+	private static Node findLeaf(Node root, int shift, int i) {
+		Node node = root;
+		for (int level = shift; level > 0; level -= BITS) {
+			node = (Node)node.array[(i >>> level) & MASK];
+		}
+
+		return node;
+	}
+
+	private static Object getValue(Node root, int shift, ReadSetting<?> setting, int size) {
+		int i = slotOf(setting, size);
+		Node leaf = findLeaf(root, shift, i);
+		PrimitiveType type = setting.getPrimitiveType();
+		if (type != null) {
+			return type.fromBits(leaf.getBits(i & MASK));
+		}
+
+		return leaf.array[i & MASK];
+	}
+
+	private static long getVersion(Node root, int shift, ReadSetting<?> setting, int size) {
+		int i = slotOf(setting, size);
+		return findLeaf(root, shift, i).getVersion(i & MASK);
+	}
+
+	private static long getBits(Node root, int shift, ReadSetting<?> setting, int size) {
+		int i = slotOf(setting, size);
+		return findLeaf(root, shift, i).getBits(i & MASK);
+	}
+
+	private final int size;
+
+	private final Node root;
+
+	private final int shift;
+
+	private final PagePool pool;
+
+	/**
+	 * Whether the values have been released or null if they don't count as reference to their root.
+	 */
+	private final AtomicBoolean released;
+
+	/**
+	 * Creates the values.
+	 * @param isReference Whether the values count as a reference to the root, only then they can be released.
+	 */
+	private Values(int size, Node root, int shift, PagePool pool, boolean isReference) {
+		this.size = size;
+		this.root = root;
+		this.shift = shift;
+		this.pool = pool;
+		this.released = pool != null && isReference ? new AtomicBoolean() : null;
+	}
+
+	@Override
+	public Object getValue(ReadSetting<?> setting) {
+		return getValue(root, shift, setting, size);
+	}
+
+	@Override
+	public long getVersion(ReadSetting<?> setting) {
+		return getVersion(root, shift, setting, size);
+	}
+
+	@Override
+	public long getBits(ReadSetting<?> setting) {
+		return getBits(root, shift, setting, size);
+	}
+
+	@Override
+	public Values snapshot() {
+		return this;
+	}
+
+	/**
+	 * Removes the reference of these values to their nodes and returns the pages which aren't
+	 * referenced anymore to the pool. The values must not be used afterwards. Values on the heap
+	 * and snapshots of a builder don't need to be released, the call is ignored for them.
+	 */
+	@Override
+	public void release() {
+		if (released != null && released.compareAndSet(false, true)) {
+			root.release(pool);
+		}
 	}
 
 	public Builder change() {
 		return new Builder(this);
 	}
+
+	/**
+	 * Returns the values without counting them as reference to the nodes. Builders of the view
+	 * copy to the heap, so what they build doesn't need to be released either. The view is only
+	 * valid as long as these values.
+	 */
+	Values view() {
+		return released != null ? new Values(size, root, shift, pool, false) : this;
+	}
 }
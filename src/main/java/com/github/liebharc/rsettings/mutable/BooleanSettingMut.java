@@ -0,0 +1,48 @@
+package com.github.liebharc.rsettings.mutable;
+
+import java.util.Optional;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+import com.github.liebharc.rsettings.immutable.*;
+
+/**
+ * The mutable version of @see BooleanSetting.
+ */
+public abstract class BooleanSettingMut extends ReadSettingMut<Boolean> {
+	
+	public BooleanSettingMut(RegisterMut register, boolean defaultValue, Dependencies dependencies) {
+		super(register, defaultValue, dependencies, PrimitiveType.Boolean);
+	}
+	
+	/**
+	 * Creates a setting with a key, see @see ReadSetting#getKey().
+	 * @param key The key or null if the setting has no key.
+	 */
+	public BooleanSettingMut(RegisterMut register, String key, boolean defaultValue, Dependencies dependencies) {
+		super(register, key, defaultValue, dependencies, PrimitiveType.Boolean);
+	}
+	
+	public boolean getBoolean() {
+		return getState().getBoolean(this);
+	}
+	
+	/**
+	 * The update routine of this setting, see @see ReadSetting#update(State).
+	 * @param state The current state.
+	 * @return The new value, which is the current value if nothing should change.
+	 * @throws CheckFailedException if the value isn't consistent with the other values in the state.
+	 */
+	protected boolean updateBoolean(State state) throws CheckFailedException {
+		return state.getBoolean(this);
+	}
+	
+	@Override
+	protected final Optional<Boolean> update(State state) throws CheckFailedException {
+		return Optional.of(updateBoolean(state));
+	}
+	
+	@Override
+	protected final long updateBits(State state) throws CheckFailedException {
+		return updateBoolean(state) ? 1 : 0;
+	}
+}
@@ -0,0 +1,109 @@
+package com.github.liebharc.rsettings.mutable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import com.github.liebharc.rsettings.immutable.*;
+
+/**
+ * A state listener which skips intermediate states while the subscriber is busy. 
+ * 
+ * At most one state waits for delivery, a newer state replaces it. The subscriber gets the newest 
+ * state together with all settings which have changed since the last delivered state, so it 
+ * doesn't miss a change even if states have been skipped.
+ * 
+ * States are ordered by their version. A state of another kind, which is created when the state 
+ * is reinitialized, starts a new order and all of its settings count as changed.
+ */
+final class ConflatingListener implements Consumer<State> {
+	
+	private final Consumer<StateChange> listener;
+	
+	private final Executor executor;
+	
+	private State lastDelivered;
+	
+	private State pending = null;
+	
+	private boolean isScheduled = false;
+	
+	ConflatingListener(Consumer<StateChange> listener, Executor executor, State initial) {
+		this.listener = listener;
+		this.executor = executor;
+		this.lastDelivered = initial;
+	}
+	
+	@Override
+	public void accept(State state) {
+		synchronized (this) {
+			State newest = pending != null ? pending : lastDelivered;
+			if (state.isSameKind(newest) && state.getVersion() <= newest.getVersion()) {
+				return;
+			}
+			
+			pending = state;
+			if (isScheduled) {
+				return;
+			}
+			
+			isScheduled = true;
+		}
+		
+		schedule();
+	}
+	
+	private void schedule() {
+		try {
+			executor.execute(this::deliver);
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				isScheduled = false;
+			}
+			
+			throw e;
+		}
+	}
+	
+	private void deliver() {
+		boolean isCompleted = false;
+		try {
+			while (true) {
+				State next;
+				State previous;
+				synchronized (this) {
+					next = pending;
+					if (next == null) {
+						isScheduled = false;
+						isCompleted = true;
+						return;
+					}
+					
+					pending = null;
+					previous = lastDelivered;
+					lastDelivered = next;
+				}
+				
+				List<ReadSetting<?>> changes = 
+						next.isSameKind(previous) 
+						? next.getChanges(previous) 
+						: new ArrayList<>(next.listSettings());
+				listener.accept(new StateChange(next, previous, changes));
+			}
+		} finally {
+			if (!isCompleted) {
+				// The listener has thrown, deliver the pending state in a new task
+				boolean hasPending;
+				synchronized (this) {
+					hasPending = pending != null;
+					isScheduled = hasPending;
+				}
+				
+				if (hasPending) {
+					schedule();
+				}
+			}
+		}
+	}
+}
@@ -1,37 +1,171 @@
 package com.github.liebharc.rsettings.mutable;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
 import com.github.liebharc.rsettings.CheckFailedException;
 import com.github.liebharc.rsettings.events.*;
 import com.github.liebharc.rsettings.immutable.*;
 
 /**
  * Manages the current version of the state. Makes sure that changes to the state a thread safe.
+ *
+ * The provider doesn't use locks. Reading the current state is a volatile read. Writers merge their
+ * state with the current state and try to swap in the result, if another writer was faster then the
+ * merge is repeated with the new current state.
+ *
+ * Listeners get the merged state which has been committed. The state committed event additionally
+ * contains the previous state and the settings which have changed between both states.
  */
 class CurrentStateProvider implements StateProvider {
 	private EventPublisher<State> stateChanged = new EventPublisher<>();
 	
-	private final Object lock = new Object();
+	private EventPublisher<StateChange> stateCommitted = new EventPublisher<>();
+	
+	private final AtomicReference<State> current;
 	
-	private State current;
+	private volatile GroupCommit groupCommit = null;
 	
 	public CurrentStateProvider(State init) {
-		current = init;
+		current = new AtomicReference<>(init);
 	}
 	
 	/* (non-Javadoc)
 	 * @see com.github.liebharc.rsettings.mutable.StateProvider#set(com.github.liebharc.rsettings.immutable.State)
 	 */
 	@Override
-	public void set(State state) throws CheckFailedException {
-		synchronized (lock) {
-			current = state.merge(current);
+	public State set(State state) throws CheckFailedException {
+		State previous;
+		State merged;
+		while (true) {
+			previous = current.get();
+			merged = state.merge(previous);
+			if (current.compareAndSet(previous, merged)) {
+				break;
+			}
+			
+			if (merged != state) {
+				// The merge result of a lost race is never used, return its off-heap pages
+				merged.release();
+			}
 		}
 		
-		stateChanged.raise(state);
+		stateCommitted.raise(new StateChange(merged, previous, merged.getChanges(previous)));
+		stateChanged.raise(merged);
+		return merged;
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.github.liebharc.rsettings.mutable.StateProvider#write(com.github.liebharc.rsettings.immutable.ReadSetting, java.lang.Object)
+	 */
+	@Override
+	public CompletableFuture<State> write(ReadSetting<?> setting, Object value) {
+		GroupCommit group = groupCommit;
+		if (group != null) {
+			return group.write(setting, value);
+		}
+		
+		CompletableFuture<State> result = new CompletableFuture<>();
+		try {
+			result.complete(commit(setting, value));
+		} catch (CheckFailedException | RuntimeException e) {
+			// Like with group commit a failing listener fails the future instead of the caller
+			result.completeExceptionally(e);
+		}
+		
+		return result;
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.github.liebharc.rsettings.mutable.StateProvider#writeAndWait(com.github.liebharc.rsettings.immutable.ReadSetting, java.lang.Object)
+	 */
+	@Override
+	public State writeAndWait(ReadSetting<?> setting, Object value) throws CheckFailedException {
+		GroupCommit group = groupCommit;
+		if (group == null) {
+			// Commit in the calling thread without the detour over a future
+			return commit(setting, value);
+		}
+		
+		return join(group.write(setting, value));
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.github.liebharc.rsettings.mutable.StateProvider#writeBits(com.github.liebharc.rsettings.immutable.ReadSetting, com.github.liebharc.rsettings.immutable.PrimitiveType, long)
+	 */
+	@Override
+	public CompletableFuture<State> writeBits(ReadSetting<?> setting, PrimitiveType type, long bits) {
+		GroupCommit group = groupCommit;
+		if (group != null) {
+			return group.writeBits(setting, type, bits);
+		}
+		
+		CompletableFuture<State> result = new CompletableFuture<>();
+		try {
+			result.complete(commitBits(setting, type, bits));
+		} catch (CheckFailedException | RuntimeException e) {
+			result.completeExceptionally(e);
+		}
+		
+		return result;
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.github.liebharc.rsettings.mutable.StateProvider#writeBitsAndWait(com.github.liebharc.rsettings.immutable.ReadSetting, com.github.liebharc.rsettings.immutable.PrimitiveType, long)
+	 */
+	@Override
+	public State writeBitsAndWait(ReadSetting<?> setting, PrimitiveType type, long bits) throws CheckFailedException {
+		GroupCommit group = groupCommit;
+		if (group == null) {
+			return commitBits(setting, type, bits);
+		}
+		
+		return join(group.writeBits(setting, type, bits));
+	}
+	
+	/**
+	 * Waits for a write of a group commit and rethrows the reason if it has failed.
+	 */
+	private static State join(CompletableFuture<State> write) throws CheckFailedException {
+		try {
+			return write.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof CheckFailedException) {
+				throw (CheckFailedException)e.getCause();
+			}
+			
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException)e.getCause();
+			}
+			
+			throw e;
+		}
+	}
+	
+	private State commit(ReadSetting<?> setting, Object value) throws CheckFailedException {
+		State.Builder builder = get().change();
+		builder.setUnchecked(setting, value);
+		return set(builder.build());
+	}
+	
+	private State commitBits(ReadSetting<?> setting, PrimitiveType type, long bits) throws CheckFailedException {
+		State.Builder builder = get().change();
+		builder.setBitsUnchecked(setting, type, bits);
+		return set(builder.build());
+	}
+	
+	/**
+	 * Enables or disables the group commit mode for @see write(ReadSetting, Object).
+	 * @param groupCommit The group commit or null to commit every write on its own.
+	 */
+	void setGroupCommit(GroupCommit groupCommit) {
+		this.groupCommit = groupCommit;
 	}
 	
 	void reinitialize(State state) {
-		current = state;
+		State previous = current.getAndSet(state);
+		stateCommitted.raise(new StateChange(state, previous, state.getChanges()));
 		stateChanged.raise(state);
 	}
 	
@@ -40,9 +174,7 @@ class CurrentStateProvider implements StateProvider {
 	 */
 	@Override
 	public State get() {
-		synchronized (lock) {
-			return current;
-		}
+		return current.get();
 	}
 	
 	/* (non-Javadoc)
@@ -52,4 +184,12 @@ class CurrentStateProvider implements StateProvider {
 	public Event<State> getStateChangedEvent() {
 		return stateChanged.getEvent();
 	}
+	
+	/* (non-Javadoc)
+	 * @see com.github.liebharc.rsettings.mutable.StateProvider#getStateCommittedEvent()
+	 */
+	@Override
+	public Event<StateChange> getStateCommittedEvent() {
+		return stateCommitted.getEvent();
+	}
 }
@@ -0,0 +1,48 @@
+package com.github.liebharc.rsettings.mutable;
+
+import java.util.Optional;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+import com.github.liebharc.rsettings.immutable.*;
+
+/**
+ * The mutable version of @see DoubleSetting.
+ */
+public abstract class DoubleSettingMut extends ReadSettingMut<Double> {
+	
+	public DoubleSettingMut(RegisterMut register, double defaultValue, Dependencies dependencies) {
+		super(register, defaultValue, dependencies, PrimitiveType.Double);
+	}
+	
+	/**
+	 * Creates a setting with a key, see @see ReadSetting#getKey().
+	 * @param key The key or null if the setting has no key.
+	 */
+	public DoubleSettingMut(RegisterMut register, String key, double defaultValue, Dependencies dependencies) {
+		super(register, key, defaultValue, dependencies, PrimitiveType.Double);
+	}
+	
+	public double getDouble() {
+		return getState().getDouble(this);
+	}
+	
+	/**
+	 * The update routine of this setting, see @see ReadSetting#update(State).
+	 * @param state The current state.
+	 * @return The new value, which is the current value if nothing should change.
+	 * @throws CheckFailedException if the value isn't consistent with the other values in the state.
+	 */
+	protected double updateDouble(State state) throws CheckFailedException {
+		return state.getDouble(this);
+	}
+	
+	@Override
+	protected final Optional<Double> update(State state) throws CheckFailedException {
+		return Optional.of(updateDouble(state));
+	}
+	
+	@Override
+	protected final long updateBits(State state) throws CheckFailedException {
+		return Double.doubleToLongBits(updateDouble(state));
+	}
+}
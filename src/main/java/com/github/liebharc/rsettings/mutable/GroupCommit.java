@@ -0,0 +1,148 @@
+package com.github.liebharc.rsettings.mutable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+import com.github.liebharc.rsettings.immutable.*;
+
+/**
+ * Collects concurrent writes of single settings and commits them together, so that the
+ * dependencies are propagated and the result is merged only once for all of them.
+ * 
+ * The first writer of a batch becomes its leader. It waits for the window to collect more writes
+ * and then commits the batch in its own thread, so no background thread is needed. If the batch
+ * fails a check then every write is committed on its own, so that an invalid value only fails the 
+ * write which has caused it. If a listener throws after the batch has been committed, then the 
+ * writes aren't repeated and all of them fail with the exception of the listener, just like a 
+ * single write would.
+ */
+final class GroupCommit {
+	
+	private static final class PendingWrite {
+		
+		private final ReadSetting<?> setting;
+		
+		private final Object value;
+		
+		/**
+		 * The type of a primitive value which is written as bits or null if value should be written.
+		 */
+		private final PrimitiveType type;
+		
+		private final long bits;
+		
+		private final CompletableFuture<State> result = new CompletableFuture<>();
+		
+		private PendingWrite(ReadSetting<?> setting, Object value, PrimitiveType type, long bits) {
+			this.setting = setting;
+			this.value = value;
+			this.type = type;
+			this.bits = bits;
+		}
+		
+		private void applyTo(State.Builder builder) {
+			if (type != null) {
+				builder.setBitsUnchecked(setting, type, bits);
+			}
+			else {
+				builder.setUnchecked(setting, value);
+			}
+		}
+	}
+	
+	private final CurrentStateProvider state;
+	
+	private final Runnable window;
+	
+	private List<PendingWrite> batch = new ArrayList<>();
+	
+	private boolean hasLeader = false;
+	
+	/**
+	 * Creates a group commit.
+	 * @param state The provider to which the batches are committed.
+	 * @param window Called by the leader of a batch, the batch is committed once it returns.
+	 */
+	GroupCommit(CurrentStateProvider state, Runnable window) {
+		this.state = state;
+		this.window = window;
+	}
+	
+	CompletableFuture<State> write(ReadSetting<?> setting, Object value) {
+		return write(new PendingWrite(setting, value, null, 0));
+	}
+	
+	CompletableFuture<State> writeBits(ReadSetting<?> setting, PrimitiveType type, long bits) {
+		return write(new PendingWrite(setting, null, type, bits));
+	}
+	
+	private CompletableFuture<State> write(PendingWrite write) {
+		boolean isLeader;
+		synchronized (this) {
+			batch.add(write);
+			isLeader = !hasLeader;
+			hasLeader = true;
+		}
+		
+		if (isLeader) {
+			window.run();
+			commit(takeBatch());
+		}
+		
+		return write.result;
+	}
+	
+	private synchronized List<PendingWrite> takeBatch() {
+		List<PendingWrite> result = batch;
+		batch = new ArrayList<>();
+		hasLeader = false;
+		return result;
+	}
+	
+	private void commit(List<PendingWrite> writes) {
+		State committed;
+		try {
+			State.Builder builder = state.get().change();
+			for (PendingWrite write : writes) {
+				write.applyTo(builder);
+			}
+			
+			// A check can only fail before the state has been swapped in, listeners can't throw checked exceptions
+			committed = state.set(builder.build());
+		} catch (CheckFailedException e) {
+			if (writes.size() == 1) {
+				writes.get(0).result.completeExceptionally(e);
+				return;
+			}
+			
+			for (PendingWrite write : writes) {
+				commit(write);
+			}
+			
+			return;
+		} catch (RuntimeException e) {
+			// The batch might have been committed already, so it must not be repeated
+			for (PendingWrite write : writes) {
+				write.result.completeExceptionally(e);
+			}
+			
+			return;
+		}
+		
+		for (PendingWrite write : writes) {
+			write.result.complete(committed);
+		}
+	}
+	
+	private void commit(PendingWrite write) {
+		try {
+			State.Builder builder = state.get().change();
+			write.applyTo(builder);
+			write.result.complete(state.set(builder.build()));
+		} catch (CheckFailedException | RuntimeException e) {
+			write.result.completeExceptionally(e);
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.github.liebharc.rsettings.mutable;
+
+import java.util.Optional;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+import com.github.liebharc.rsettings.immutable.*;
+
+/**
+ * The mutable version of @see IntSetting.
+ */
+public abstract class IntSettingMut extends ReadSettingMut<Integer> {
+	
+	public IntSettingMut(RegisterMut register, int defaultValue, Dependencies dependencies) {
+		super(register, defaultValue, dependencies, PrimitiveType.Int);
+	}
+	
+	/**
+	 * Creates a setting with a key, see @see ReadSetting#getKey().
+	 * @param key The key or null if the setting has no key.
+	 */
+	public IntSettingMut(RegisterMut register, String key, int defaultValue, Dependencies dependencies) {
+		super(register, key, defaultValue, dependencies, PrimitiveType.Int);
+	}
+	
+	public int getInt() {
+		return getState().getInt(this);
+	}
+	
+	/**
+	 * The update routine of this setting, see @see ReadSetting#update(State).
+	 * @param state The current state.
+	 * @return The new value, which is the current value if nothing should change.
+	 * @throws CheckFailedException if the value isn't consistent with the other values in the state.
+	 */
+	protected int updateInt(State state) throws CheckFailedException {
+		return state.getInt(this);
+	}
+	
+	@Override
+	protected final Optional<Integer> update(State state) throws CheckFailedException {
+		return Optional.of(updateInt(state));
+	}
+	
+	@Override
+	protected final long updateBits(State state) throws CheckFailedException {
+		return updateInt(state);
+	}
+}
@@ -0,0 +1,48 @@
+package com.github.liebharc.rsettings.mutable;
+
+import java.util.Optional;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+import com.github.liebharc.rsettings.immutable.*;
+
+/**
+ * The mutable version of @see LongSetting.
+ */
+public abstract class LongSettingMut extends ReadSettingMut<Long> {
+	
+	public LongSettingMut(RegisterMut register, long defaultValue, Dependencies dependencies) {
+		super(register, defaultValue, dependencies, PrimitiveType.Long);
+	}
+	
+	/**
+	 * Creates a setting with a key, see @see ReadSetting#getKey().
+	 * @param key The key or null if the setting has no key.
+	 */
+	public LongSettingMut(RegisterMut register, String key, long defaultValue, Dependencies dependencies) {
+		super(register, key, defaultValue, dependencies, PrimitiveType.Long);
+	}
+	
+	public long getLong() {
+		return getState().getLong(this);
+	}
+	
+	/**
+	 * The update routine of this setting, see @see ReadSetting#update(State).
+	 * @param state The current state.
+	 * @return The new value, which is the current value if nothing should change.
+	 * @throws CheckFailedException if the value isn't consistent with the other values in the state.
+	 */
+	protected long updateLong(State state) throws CheckFailedException {
+		return state.getLong(this);
+	}
+	
+	@Override
+	protected final Optional<Long> update(State state) throws CheckFailedException {
+		return Optional.of(updateLong(state));
+	}
+	
+	@Override
+	protected final long updateBits(State state) throws CheckFailedException {
+		return updateLong(state);
+	}
+}
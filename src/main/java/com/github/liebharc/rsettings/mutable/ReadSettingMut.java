@@ -1,5 +1,8 @@
 package com.github.liebharc.rsettings.mutable;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
 import com.github.liebharc.rsettings.CheckFailedException;
 import com.github.liebharc.rsettings.Reject;
 import com.github.liebharc.rsettings.events.*;
@@ -9,18 +12,50 @@ public abstract class ReadSettingMut<T> extends ReadSetting<T> {
 
 	private final EventPublisher<T> valueChangedEvent = new EventPublisher<>(); 
 	
+	private final Flow.Publisher<T> valuePublisher = new FlowPublisher<>(valueChangedEvent.getEvent());
+	
 	private final StateProvider state;
 	
 	public ReadSettingMut(RegisterMut register, T defaultValue, Dependencies dependencies) {
-		super(defaultValue, dependencies);
+		this(register, null, defaultValue, dependencies, null);
+	}
+	
+	/**
+	 * Creates a setting with a key, see @see ReadSetting#getKey().
+	 * @param key The key or null if the setting has no key.
+	 */
+	public ReadSettingMut(RegisterMut register, String key, T defaultValue, Dependencies dependencies) {
+		this(register, key, defaultValue, dependencies, null);
+	}
+	
+	/**
+	 * Creates a setting whose values are stored without boxing, see @see ReadSetting.
+	 */
+	protected ReadSettingMut(RegisterMut register, T defaultValue, Dependencies dependencies, PrimitiveType primitiveType) {
+		this(register, null, defaultValue, dependencies, primitiveType);
+	}
+	
+	/**
+	 * Creates a setting with a key whose values are stored without boxing.
+	 * @param key The key or null if the setting has no key.
+	 */
+	protected ReadSettingMut(
+			RegisterMut register, 
+			String key, 
+			T defaultValue, 
+			Dependencies dependencies, 
+			PrimitiveType primitiveType) {
+		super(defaultValue, dependencies, primitiveType);
 		Reject.ifNull(register);
-		state = register.add(this);
-		state.getStateChangedEvent().subscribe((newState) -> {
-			if (newState.getChanges().contains(this)) {
-				T newValue = newState.get(this);
-				valueChangedEvent.raise(newValue);
-			}
-		});
+		state = key != null ? register.add(key, this) : register.add(this);
+	}
+	
+	/**
+	 * Raises the value changed event. This is called by @see StateMut for every setting
+	 * which has changed in a new state.
+	 */
+	void raiseValueChanged(State newState) {
+		valueChangedEvent.raise(newState.get(this));
 	}
 
 	public T getValue() {
@@ -31,6 +66,31 @@ public abstract class ReadSettingMut<T> extends ReadSetting<T> {
 		this.state.set(state);
 	}
 	
+	CompletableFuture<State> writeValue(T value) {
+		return state.write(this, value);
+	}
+	
+	/**
+	 * Writes a value and waits until it has been committed.
+	 */
+	void awaitWrite(T value) throws CheckFailedException {
+		state.writeAndWait(this, value);
+	}
+	
+	/**
+	 * Writes a primitive value without boxing it, see @see PrimitiveType.
+	 */
+	CompletableFuture<State> writeBits(PrimitiveType type, long bits) {
+		return state.writeBits(this, type, bits);
+	}
+	
+	/**
+	 * Writes a primitive value without boxing it and waits until it has been committed.
+	 */
+	void awaitWriteBits(PrimitiveType type, long bits) throws CheckFailedException {
+		state.writeBitsAndWait(this, type, bits);
+	}
+	
 	protected State getState() {	
 		return state.get();
 	}
@@ -52,6 +112,14 @@ public abstract class ReadSettingMut<T> extends ReadSetting<T> {
 		return valueChangedEvent.getEvent();
 	}
 	
+	/**
+	 * Publishes the value changed event to reactive streams.
+	 * @return A publisher of all new values of this setting.
+	 */
+	public Flow.Publisher<T> getValuePublisher() {
+		return valuePublisher;
+	}
+	
 	@Override
 	public boolean shouldBeStored() {
 		return false;
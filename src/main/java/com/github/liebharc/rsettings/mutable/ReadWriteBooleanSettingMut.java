@@ -0,0 +1,48 @@
+package com.github.liebharc.rsettings.mutable;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+import com.github.liebharc.rsettings.immutable.*;
+
+/**
+ * The mutable version of @see ReadWriteBooleanSetting.
+ */
+public abstract class ReadWriteBooleanSettingMut 
+	extends BooleanSettingMut 
+	implements WriteableSetting<Boolean> {
+	
+	public ReadWriteBooleanSettingMut(RegisterMut register, boolean defaultValue, Dependencies dependencies) {
+		super(register, defaultValue, dependencies);
+	}
+	
+	/**
+	 * Creates a setting with a key, see @see ReadSetting#getKey().
+	 * @param key The key or null if the setting has no key.
+	 */
+	public ReadWriteBooleanSettingMut(RegisterMut register, String key, boolean defaultValue, Dependencies dependencies) {
+		super(register, key, defaultValue, dependencies);
+	}
+	
+	public void setValue(boolean value) throws CheckFailedException {
+		awaitWriteBits(PrimitiveType.Boolean, value ? 1 : 0);
+	}
+	
+	/**
+	 * Sets the value, see @see ReadWriteSettingMut#setValueAsync(Object).
+	 * @param value The new value.
+	 * @return The committed state which contains the value or the reason why the value has been rejected.
+	 */
+	public CompletableFuture<State> setValueAsync(boolean value) {
+		return writeBits(PrimitiveType.Boolean, value ? 1 : 0);
+	}
+	
+	public void reset() throws CheckFailedException {
+		setValue(getDefaultValue());
+	}
+	
+	@Override
+	public boolean shouldBeStored() {
+		return true;
+	}
+}
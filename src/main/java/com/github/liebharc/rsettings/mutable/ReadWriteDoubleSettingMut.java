@@ -0,0 +1,48 @@
+package com.github.liebharc.rsettings.mutable;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+import com.github.liebharc.rsettings.immutable.*;
+
+/**
+ * The mutable version of @see ReadWriteDoubleSetting.
+ */
+public abstract class ReadWriteDoubleSettingMut 
+	extends DoubleSettingMut 
+	implements WriteableSetting<Double> {
+	
+	public ReadWriteDoubleSettingMut(RegisterMut register, double defaultValue, Dependencies dependencies) {
+		super(register, defaultValue, dependencies);
+	}
+	
+	/**
+	 * Creates a setting with a key, see @see ReadSetting#getKey().
+	 * @param key The key or null if the setting has no key.
+	 */
+	public ReadWriteDoubleSettingMut(RegisterMut register, String key, double defaultValue, Dependencies dependencies) {
+		super(register, key, defaultValue, dependencies);
+	}
+	
+	public void setValue(double value) throws CheckFailedException {
+		awaitWriteBits(PrimitiveType.Double, Double.doubleToLongBits(value));
+	}
+	
+	/**
+	 * Sets the value, see @see ReadWriteSettingMut#setValueAsync(Object).
+	 * @param value The new value.
+	 * @return The committed state which contains the value or the reason why the value has been rejected.
+	 */
+	public CompletableFuture<State> setValueAsync(double value) {
+		return writeBits(PrimitiveType.Double, Double.doubleToLongBits(value));
+	}
+	
+	public void reset() throws CheckFailedException {
+		setValue(getDefaultValue());
+	}
+	
+	@Override
+	public boolean shouldBeStored() {
+		return true;
+	}
+}
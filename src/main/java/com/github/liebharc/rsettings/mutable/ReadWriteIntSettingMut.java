@@ -0,0 +1,48 @@
+package com.github.liebharc.rsettings.mutable;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+import com.github.liebharc.rsettings.immutable.*;
+
+/**
+ * The mutable version of @see ReadWriteIntSetting.
+ */
+public abstract class ReadWriteIntSettingMut 
+	extends IntSettingMut 
+	implements WriteableSetting<Integer> {
+	
+	public ReadWriteIntSettingMut(RegisterMut register, int defaultValue, Dependencies dependencies) {
+		super(register, defaultValue, dependencies);
+	}
+	
+	/**
+	 * Creates a setting with a key, see @see ReadSetting#getKey().
+	 * @param key The key or null if the setting has no key.
+	 */
+	public ReadWriteIntSettingMut(RegisterMut register, String key, int defaultValue, Dependencies dependencies) {
+		super(register, key, defaultValue, dependencies);
+	}
+	
+	public void setValue(int value) throws CheckFailedException {
+		awaitWriteBits(PrimitiveType.Int, value);
+	}
+	
+	/**
+	 * Sets the value, see @see ReadWriteSettingMut#setValueAsync(Object).
+	 * @param value The new value.
+	 * @return The committed state which contains the value or the reason why the value has been rejected.
+	 */
+	public CompletableFuture<State> setValueAsync(int value) {
+		return writeBits(PrimitiveType.Int, value);
+	}
+	
+	public void reset() throws CheckFailedException {
+		setValue(getDefaultValue());
+	}
+	
+	@Override
+	public boolean shouldBeStored() {
+		return true;
+	}
+}
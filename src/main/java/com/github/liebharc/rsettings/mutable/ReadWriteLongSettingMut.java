@@ -0,0 +1,48 @@
+package com.github.liebharc.rsettings.mutable;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+import com.github.liebharc.rsettings.immutable.*;
+
+/**
+ * The mutable version of @see ReadWriteLongSetting.
+ */
+public abstract class ReadWriteLongSettingMut 
+	extends LongSettingMut 
+	implements WriteableSetting<Long> {
+	
+	public ReadWriteLongSettingMut(RegisterMut register, long defaultValue, Dependencies dependencies) {
+		super(register, defaultValue, dependencies);
+	}
+	
+	/**
+	 * Creates a setting with a key, see @see ReadSetting#getKey().
+	 * @param key The key or null if the setting has no key.
+	 */
+	public ReadWriteLongSettingMut(RegisterMut register, String key, long defaultValue, Dependencies dependencies) {
+		super(register, key, defaultValue, dependencies);
+	}
+	
+	public void setValue(long value) throws CheckFailedException {
+		awaitWriteBits(PrimitiveType.Long, value);
+	}
+	
+	/**
+	 * Sets the value, see @see ReadWriteSettingMut#setValueAsync(Object).
+	 * @param value The new value.
+	 * @return The committed state which contains the value or the reason why the value has been rejected.
+	 */
+	public CompletableFuture<State> setValueAsync(long value) {
+		return writeBits(PrimitiveType.Long, value);
+	}
+	
+	public void reset() throws CheckFailedException {
+		setValue(getDefaultValue());
+	}
+	
+	@Override
+	public boolean shouldBeStored() {
+		return true;
+	}
+}
@@ -1,5 +1,7 @@
 package com.github.liebharc.rsettings.mutable;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.github.liebharc.rsettings.CheckFailedException;
 import com.github.liebharc.rsettings.immutable.CanConvertTo;
 import com.github.liebharc.rsettings.immutable.State;
@@ -13,12 +15,33 @@ public abstract class ReadWriteSettingMut<T>
 	public ReadWriteSettingMut(RegisterMut register, T defaultValue, Dependencies dependencies) {
 		super(register, defaultValue, dependencies);
 	}
+	
+	/**
+	 * Creates a setting with a key, see @see ReadSetting#getKey().
+	 * @param key The key or null if the setting has no key.
+	 */
+	public ReadWriteSettingMut(RegisterMut register, String key, T defaultValue, Dependencies dependencies) {
+		super(register, key, defaultValue, dependencies);
+	}
 
 	public void setValue(T value) throws CheckFailedException {
-		State newState = 
-				getState().change().
-				set(this, value).build();
-		updateState(newState);
+		awaitWrite(value);
+	}
+	
+	/**
+	 * Sets the value. If group commit is enabled with @see StateMut#enableGroupCommit(long, TimeUnit)
+	 * then the write might be committed together with concurrent writes of other threads.
+	 * 
+	 * There is no background thread, writes are committed by the writing threads. Without group commit 
+	 * the value is committed before this method returns. With group commit the first writer of a batch 
+	 * waits for the window and commits the batch before it returns, all other writers return right away.
+	 * Use @see StateMut.Builder#executeAsync(Executor) to commit on another thread. Every error, 
+	 * including an exception of a listener, completes the future exceptionally.
+	 * @param value The new value.
+	 * @return The committed state which contains the value or the reason why the value has been rejected.
+	 */
+	public CompletableFuture<State> setValueAsync(T value) {
+		return writeValue(value);
 	}
 	
 	public <TConvertible extends CanConvertTo<T>>
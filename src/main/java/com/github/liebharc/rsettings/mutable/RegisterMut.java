@@ -4,5 +4,11 @@ import com.github.liebharc.rsettings.immutable.ReadSetting;
 
 public interface RegisterMut {
 	StateProvider add(ReadSetting<?> setting);
+	
+	/**
+	 * Adds a setting with a key, see @see com.github.liebharc.rsettings.immutable.Register#add(String, ReadSetting).
+	 */
+	StateProvider add(String key, ReadSetting<?> setting);
+	
 	void complete();
 }
@@ -0,0 +1,64 @@
+package com.github.liebharc.rsettings.mutable;
+
+import java.util.BitSet;
+import java.util.List;
+
+import com.github.liebharc.rsettings.immutable.*;
+
+/**
+ * Describes the change from one state to a newer state. The newer state might be 
+ * several versions ahead of the previous one, the changes then contain all settings 
+ * which have changed in between.
+ */
+public final class StateChange {
+	
+	private final State state;
+	
+	private final State previous;
+	
+	private final List<ReadSetting<?>> changes;
+	
+	private final BitSet changedSlots = new BitSet();
+	
+	StateChange(State state, State previous, List<ReadSetting<?>> changes) {
+		this.state = state;
+		this.previous = previous;
+		this.changes = changes;
+		for (ReadSetting<?> setting : changes) {
+			changedSlots.set(setting.getSlot());
+		}
+	}
+	
+	public State getState() {
+		return state;
+	}
+	
+	public State getPrevious() {
+		return previous;
+	}
+	
+	/**
+	 * Returns all settings which have a different value in @see getState() than in @see getPrevious().
+	 * @return All settings which have changed.
+	 */
+	public List<ReadSetting<?>> getChanges() {
+		return changes;
+	}
+	
+	/**
+	 * Indicates whether a setting is part of @see getChanges(). 
+	 * @param setting A setting.
+	 * @return true if the setting has changed, false if it isn't part of the state.
+	 */
+	public boolean hasChanged(ReadSetting<?> setting) {
+		return state.contains(setting) && changedSlots.get(setting.getSlot());
+	}
+	
+	/**
+	 * Returns the slots of all settings in @see getChanges().
+	 * @return The changed slots.
+	 */
+	public BitSet getChangedSlots() {
+		return (BitSet)changedSlots.clone();
+	}
+}
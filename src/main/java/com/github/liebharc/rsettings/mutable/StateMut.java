@@ -1,9 +1,15 @@
 package com.github.liebharc.rsettings.mutable;
 
 import com.github.liebharc.rsettings.CheckFailedException; 
-import com.github.liebharc.rsettings.events.Event;
+import com.github.liebharc.rsettings.events.*;
 import com.github.liebharc.rsettings.immutable.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 /**
  * The mutable version of the state is built on top of the immutable version.
@@ -36,21 +42,79 @@ public class StateMut {
 			return this;
 		}
 		
+		public <TSetting extends ReadSettingMut<Integer> & WriteableSetting<Integer>> Builder setInt(TSetting setting, int value) {
+			builder.setInt(setting, value);
+			return this;
+		}
+		
+		public <TSetting extends ReadSettingMut<Long> & WriteableSetting<Long>> Builder setLong(TSetting setting, long value) {
+			builder.setLong(setting, value);
+			return this;
+		}
+		
+		public <TSetting extends ReadSettingMut<Double> & WriteableSetting<Double>> Builder setDouble(TSetting setting, double value) {
+			builder.setDouble(setting, value);
+			return this;
+		}
+		
+		public <TSetting extends ReadSettingMut<Boolean> & WriteableSetting<Boolean>> Builder setBoolean(TSetting setting, boolean value) {
+			builder.setBoolean(setting, value);
+			return this;
+		}
+		
 		public void execute() throws CheckFailedException {
 			State newState = builder.build();
 			state.set(newState);
 		}
+		
+		/**
+		 * Executes the transaction on the given executor, so that the calling thread isn't blocked 
+		 * while the changes are propagated.
+		 * 
+		 * Like @see execute() the transaction is committed on its own, it isn't batched with other 
+		 * writes even if group commit (@see StateMut#enableGroupCommit(long, TimeUnit)) is enabled. 
+		 * Group commit only applies to writes of single settings. The transaction is merged with
+		 * concurrent commits like any other state.
+		 * @param executor The executor which propagates and commits the changes.
+		 * @return The committed state or the reason why the transaction has been rejected.
+		 */
+		public CompletableFuture<State> executeAsync(Executor executor) {
+			CompletableFuture<State> result = new CompletableFuture<>();
+			try {
+				executor.execute(() -> {
+					try {
+						result.complete(state.set(builder.build()));
+					} catch (CheckFailedException | RuntimeException e) {
+						result.completeExceptionally(e);
+					}
+				});
+			} catch (RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+			
+			return result;
+		}
 	}
 	
 	private class RegisterStateMut implements RegisterMut {
 
-		private final Register settings = new Register();
+		private final Register settings;
+		
+		private RegisterStateMut(PropagationMode propagationMode) {
+			settings = new Register(propagationMode);
+		}
 		
 		@Override
 		public StateProvider add(ReadSetting<?> setting) {
 			settings.add(setting);
 			return state;
 		}
+		
+		@Override
+		public StateProvider add(String key, ReadSetting<?> setting) {
+			settings.add(key, setting);
+			return state;
+		}
 
 		@Override
 		public void complete() {
@@ -61,10 +125,68 @@ public class StateMut {
 	
 	private final CurrentStateProvider state;
 	
-	private final RegisterMut register = new RegisterStateMut();
+	private final RegisterMut register;
+	
+	private final Flow.Publisher<State> statePublisher;
 	
 	public StateMut() {
+		this(PropagationMode.Sequential);
+	}
+	
+	/**
+	 * Creates the state.
+	 * @param propagationMode Defines how changes are propagated to dependent settings.
+	 */
+	protected StateMut(PropagationMode propagationMode) {
+		register = new RegisterStateMut(propagationMode);
 		state = new CurrentStateProvider(new State(new Register()));
+		statePublisher = new FlowPublisher<>(state.getStateChangedEvent());
+		state.getStateCommittedEvent().subscribe(StateMut::raiseValueChangedEvents);
+	}
+	
+	/**
+	 * Notifies the settings which have changed. Only the changed settings are visited,
+	 * so the costs don't depend on the total number of settings.
+	 */
+	private static void raiseValueChangedEvents(StateChange change) {
+		for (ReadSetting<?> setting : change.getChanges()) {
+			if (setting instanceof ReadSettingMut<?>) {
+				((ReadSettingMut<?>)setting).raiseValueChanged(change.getState());
+			}
+		}
+	}
+	
+	/**
+	 * Enables the group commit mode. Writes of single settings by @see ReadWriteSettingMut#setValue 
+	 * which happen within the window are committed together, so that the dependencies are only
+	 * propagated once. A write which fails a check is retried on its own, so it doesn't affect the others.
+	 * The first writer of a batch waits for the window and commits the batch in its own thread.
+	 * @param window The time to wait for further writes.
+	 * @param unit The unit of the window.
+	 */
+	public void enableGroupCommit(long window, TimeUnit unit) {
+		if (window < 0) {
+			throw new IllegalArgumentException("Window must not be negative");
+		}
+		
+		long windowNanos = unit.toNanos(window);
+		enableGroupCommit(() -> {
+			if (windowNanos > 0) {
+				LockSupport.parkNanos(windowNanos);
+			}
+		});
+	}
+	
+	/**
+	 * Enables the group commit mode with a custom window, see @see enableGroupCommit(long, TimeUnit).
+	 * @param window Called by the first writer of a batch, the batch is committed once it returns.
+	 */
+	void enableGroupCommit(Runnable window) {
+		state.setGroupCommit(new GroupCommit(state, window));
+	}
+	
+	public void disableGroupCommit() {
+		state.setGroupCommit(null);
 	}
 	
 	public Builder startTransaction() {
@@ -79,10 +201,72 @@ public class StateMut {
 		return state.get().listSettings();
 	}
 	
+	public Optional<ReadSetting<?>> findByKey(String key) {
+		return state.get().findByKey(key);
+	}
+	
 	public Event<State> getStateChangedEvent() {
 		return state.getStateChangedEvent();
 	}
 	
+	/**
+	 * Raised after every commit with the committed state, its predecessor and the settings which 
+	 * have changed between both.
+	 * @return The state committed event.
+	 */
+	public Event<StateChange> getStateCommittedEvent() {
+		return state.getStateCommittedEvent();
+	}
+	
+	/**
+	 * Publishes the state changed event to reactive streams. See @see FlowPublisher for details on how
+	 * the demand of a subscriber is handled.
+	 * @return A publisher of all new states.
+	 */
+	public Flow.Publisher<State> getStatePublisher() {
+		return statePublisher;
+	}
+	
+	/**
+	 * Subscribes a listener to the state changed event which is called on the given executor. The listener 
+	 * receives the states in the order of @see State#byAge(), so that it never sees an older state after a newer one.
+	 * The states after a reinitialization are newer than all states before it.
+	 * @param listener The listener.
+	 * @param executor The executor which calls the listener.
+	 * @param backPressure Defines what happens if the listener can't keep up with the changes.
+	 * @param capacity The maximum number of states which are queued for the listener.
+	 * @return The subscribed listener, it must be used to unsubscribe from the state changed event.
+	 */
+	public Consumer<State> subscribeAsync(
+			Consumer<State> listener, 
+			Executor executor, 
+			BackPressure backPressure, 
+			int capacity) {
+		Consumer<State> asyncListener = 
+				new AsyncListener<>(
+					listener, 
+					executor, 
+					backPressure, 
+					capacity, 
+					State.byAge());
+		getStateChangedEvent().subscribe(asyncListener);
+		return asyncListener;
+	}
+	
+	/**
+	 * Subscribes a listener to the state changed event which skips intermediate states while the 
+	 * listener is busy. The listener receives the newest state together with all settings which have 
+	 * changed since the last state it has received.
+	 * @param listener The listener.
+	 * @param executor The executor which calls the listener.
+	 * @return The subscribed listener, it must be used to unsubscribe from the state changed event.
+	 */
+	public Consumer<State> subscribeConflated(Consumer<StateChange> listener, Executor executor) {
+		Consumer<State> conflatingListener = new ConflatingListener(listener, executor, state.get());
+		getStateChangedEvent().subscribe(conflatingListener);
+		return conflatingListener;
+	}
+	
 	protected RegisterMut getRegister() {
 		return register;
 	}
@@ -1,14 +1,37 @@
 package com.github.liebharc.rsettings.mutable;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.github.liebharc.rsettings.CheckFailedException;
 import com.github.liebharc.rsettings.events.Event;
+import com.github.liebharc.rsettings.immutable.PrimitiveType;
+import com.github.liebharc.rsettings.immutable.ReadSetting;
 import com.github.liebharc.rsettings.immutable.State;
 
 interface StateProvider {
 
-	void set(State state) throws CheckFailedException;
+	State set(State state) throws CheckFailedException;
+
+	CompletableFuture<State> write(ReadSetting<?> setting, Object value);
+
+	/**
+	 * Writes a value like @see write(ReadSetting, Object) and waits until it has been committed.
+	 */
+	State writeAndWait(ReadSetting<?> setting, Object value) throws CheckFailedException;
+
+	/**
+	 * Writes the bits of a primitive value like @see write(ReadSetting, Object) without boxing it.
+	 */
+	CompletableFuture<State> writeBits(ReadSetting<?> setting, PrimitiveType type, long bits);
+
+	/**
+	 * Writes the bits of a primitive value like @see writeAndWait(ReadSetting, Object) without boxing it.
+	 */
+	State writeBitsAndWait(ReadSetting<?> setting, PrimitiveType type, long bits) throws CheckFailedException;
 
 	State get();
 
 	Event<State> getStateChangedEvent();
+
+	Event<StateChange> getStateCommittedEvent();
 }
\ No newline at end of file
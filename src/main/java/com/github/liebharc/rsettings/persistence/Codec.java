@@ -0,0 +1,17 @@
+package com.github.liebharc.rsettings.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes and reads the values of one type in a snapshot. A codec must read exactly the bytes
+ * which it has written, since the values in a snapshot aren't length prefixed.
+ * @param <T> The value type.
+ */
+public interface Codec<T> {
+	
+	void write(T value, DataOutput output) throws IOException;
+	
+	T read(DataInput input) throws IOException;
+}
@@ -0,0 +1,163 @@
+package com.github.liebharc.rsettings.persistence;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.liebharc.rsettings.Reject;
+
+/**
+ * The codecs which are used to write and read the values in a snapshot. A codec is selected by
+ * the class of a value when a snapshot is written and by its name when a snapshot is read, 
+ * so the name must stay the same as long as snapshots which use it should be readable.
+ *
+ * The codecs should be registered before a snapshot is written or read, the registry itself
+ * isn't thread safe.
+ */
+public final class Codecs {
+	
+	private final Map<Class<?>, String> namesByType = new HashMap<>();
+	
+	private final Map<String, Codec<?>> codecsByName = new HashMap<>();
+	
+	/**
+	 * Creates a registry with codecs for strings and the boxed primitive types.
+	 * @return The registry.
+	 */
+	public static Codecs createDefault() {
+		Codecs codecs = new Codecs();
+		codecs.register("string", String.class, new Codec<String>() {
+			@Override
+			public void write(String value, DataOutput output) throws IOException {
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				output.writeInt(bytes.length);
+				output.write(bytes);
+			}
+			
+			@Override
+			public String read(DataInput input) throws IOException {
+				int length = input.readInt();
+				if (length < 0) {
+					throw new IOException("Invalid string length " + length);
+				}
+				
+				byte[] bytes = new byte[length];
+				input.readFully(bytes);
+				return new String(bytes, StandardCharsets.UTF_8);
+			}
+		});
+		codecs.register("int", Integer.class, new Codec<Integer>() {
+			@Override
+			public void write(Integer value, DataOutput output) throws IOException {
+				output.writeInt(value);
+			}
+			
+			@Override
+			public Integer read(DataInput input) throws IOException {
+				return input.readInt();
+			}
+		});
+		codecs.register("long", Long.class, new Codec<Long>() {
+			@Override
+			public void write(Long value, DataOutput output) throws IOException {
+				output.writeLong(value);
+			}
+			
+			@Override
+			public Long read(DataInput input) throws IOException {
+				return input.readLong();
+			}
+		});
+		codecs.register("double", Double.class, new Codec<Double>() {
+			@Override
+			public void write(Double value, DataOutput output) throws IOException {
+				output.writeDouble(value);
+			}
+			
+			@Override
+			public Double read(DataInput input) throws IOException {
+				return input.readDouble();
+			}
+		});
+		codecs.register("boolean", Boolean.class, new Codec<Boolean>() {
+			@Override
+			public void write(Boolean value, DataOutput output) throws IOException {
+				output.writeBoolean(value);
+			}
+			
+			@Override
+			public Boolean read(DataInput input) throws IOException {
+				return input.readBoolean();
+			}
+		});
+		return codecs;
+	}
+	
+	/**
+	 * Registers a codec. A codec which has already been registered for the type or name is replaced.
+	 * @param name The name under which the codec is stored in snapshots.
+	 * @param type The class of the values which are written with the codec. The codec is also used for 
+	 * 	subclasses and implementations of the class unless there is a codec which is closer to them.
+	 * @param codec The codec.
+	 * @return This registry.
+	 */
+	public <T> Codecs register(String name, Class<T> type, Codec<T> codec) {
+		Reject.ifNull(name);
+		Reject.ifNull(type);
+		Reject.ifNull(codec);
+		namesByType.put(type, name);
+		codecsByName.put(name, codec);
+		return this;
+	}
+	
+	/**
+	 * Returns the name of the codec for a value. If there is no codec for the class of the value
+	 * then the codec of the nearest superclass or interface is used.
+	 * @return The name or null if there is no codec for the value.
+	 */
+	String nameOf(Object value) {
+		Class<?> type = value.getClass();
+		String name = namesByType.get(type);
+		return name != null ? name : findNameOfSupertype(type);
+	}
+	
+	private String findNameOfSupertype(Class<?> type) {
+		Deque<Class<?>> candidates = new ArrayDeque<>();
+		Set<Class<?>> visited = new HashSet<>();
+		candidates.add(type);
+		while (!candidates.isEmpty()) {
+			Class<?> candidate = candidates.poll();
+			String name = namesByType.get(candidate);
+			if (name != null) {
+				return name;
+			}
+			
+			if (candidate.getSuperclass() != null && visited.add(candidate.getSuperclass())) {
+				candidates.add(candidate.getSuperclass());
+			}
+			
+			for (Class<?> implemented : candidate.getInterfaces()) {
+				if (visited.add(implemented)) {
+					candidates.add(implemented);
+				}
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Returns the codec with a name.
+	 * @return The codec or null if there is no codec with that name.
+	 */
+	Codec<?> get(String name) {
+		return codecsByName.get(name);
+	}
+}
@@ -0,0 +1,43 @@
+package com.github.liebharc.rsettings.persistence;
+
+import com.github.liebharc.rsettings.immutable.ReadSetting;
+
+/**
+ * The layout of a snapshot, all numbers are big endian as written by @see java.io.DataOutput:
+ *
+ * <pre>
+ * int     magic
+ * short   format version
+ * int     number of codecs, followed by the name of every codec
+ * int     number of settings, followed by the key of every setting
+ * the value of every setting in the order of the keys:
+ *   short index of the codec or -1 if the value is null
+ *   ...   the value as written by the codec
+ * </pre>
+ */
+final class SnapshotFormat {
+	
+	static final int MAGIC = 0x52534554;
+	
+	static final short VERSION = 1;
+	
+	static final short NULL_VALUE = -1;
+	
+	private SnapshotFormat() {
+	}
+	
+	/**
+	 * Returns the key under which the value of a setting is stored. This is the key of the setting
+	 * (@see ReadSetting#getKey()) if it has one. Otherwise the key consists of the class of the setting
+	 * and its slot, so the snapshot can only be loaded into a state whose register adds the same settings 
+	 * in the same order. Keys of settings can't contain a '#', so they never collide with such a key.
+	 */
+	static String keyOf(ReadSetting<?> setting) {
+		String key = setting.getKey();
+		if (key != null) {
+			return key;
+		}
+		
+		return setting.getClass().getName() + "#" + setting.getSlot();
+	}
+}
@@ -0,0 +1,133 @@
+package com.github.liebharc.rsettings.persistence;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+import com.github.liebharc.rsettings.Reject;
+import com.github.liebharc.rsettings.immutable.ReadSetting;
+import com.github.liebharc.rsettings.immutable.State;
+
+/**
+ * Reads a snapshot which has been written by @see SnapshotWriter. 
+ * 
+ * All values are set on one @see State.Builder, so restoring a snapshot is a single transaction 
+ * and the dependent settings are updated in one propagation when the builder is built. Values of
+ * settings which aren't part of the state or shouldn't be stored are skipped.
+ */
+public final class SnapshotReader {
+	
+	private final Codecs codecs;
+	
+	public SnapshotReader(Codecs codecs) {
+		Reject.ifNull(codecs);
+		this.codecs = codecs;
+	}
+	
+	/**
+	 * Restores a snapshot into a new state.
+	 * @param state The state to which the snapshot is applied.
+	 * @param input The stream, it isn't closed.
+	 * @return The restored state.
+	 * @throws IOException if the stream can't be read or isn't a valid snapshot.
+	 * @throws CheckFailedException if the restored values aren't consistent.
+	 */
+	public State load(State state, InputStream input) throws IOException, CheckFailedException {
+		return read(state, input).build();
+	}
+	
+	/**
+	 * Reads a snapshot into a builder. The caller may add further changes before the builder is built.
+	 * @param state The state to which the snapshot is applied.
+	 * @param input The stream, it isn't closed.
+	 * @return A builder of the state which contains the values of the snapshot.
+	 * @throws IOException if the stream can't be read or isn't a valid snapshot.
+	 */
+	public State.Builder read(State state, InputStream input) throws IOException {
+		Reject.ifNull(state);
+		Reject.ifNull(input);
+		DataInputStream data = new DataInputStream(input);
+		if (data.readInt() != SnapshotFormat.MAGIC) {
+			throw new IOException("Stream doesn't contain a snapshot");
+		}
+		
+		short version = data.readShort();
+		if (version != SnapshotFormat.VERSION) {
+			throw new IOException("Unsupported snapshot format version " + version);
+		}
+		
+		String[] codecNames = readTable(data);
+		Map<String, ReadSetting<?>> settingsWithoutKey = new HashMap<>();
+		for (ReadSetting<?> setting : state.listSettings()) {
+			if (setting.getKey() == null) {
+				settingsWithoutKey.put(SnapshotFormat.keyOf(setting), setting);
+			}
+		}
+		
+		String[] keys = readTable(data);
+		ReadSetting<?>[] settings = new ReadSetting<?>[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			settings[i] = state.findByKey(keys[i]).orElse(settingsWithoutKey.get(keys[i]));
+		}
+		
+		State.Builder builder = state.change();
+		for (int i = 0; i < keys.length; i++) {
+			Object value = readValue(data, codecNames);
+			ReadSetting<?> setting = settings[i];
+			if (setting != null && setting.shouldBeStored()) {
+				set(builder, setting, keys[i], value);
+			}
+		}
+		
+		return builder;
+	}
+	
+	private static String[] readTable(DataInputStream data) throws IOException {
+		int length = data.readInt();
+		if (length < 0) {
+			throw new IOException("Invalid table length " + length);
+		}
+		
+		String[] table = new String[length];
+		for (int i = 0; i < table.length; i++) {
+			table[i] = data.readUTF();
+		}
+		
+		return table;
+	}
+	
+	/**
+	 * Sets a value. Settings with a primitive type reject values of any other type. The generic type
+	 * of other settings isn't known at runtime, their values are checked by the settings themselves 
+	 * when the builder is built.
+	 */
+	private static void set(State.Builder builder, ReadSetting<?> setting, String key, Object value) throws IOException {
+		try {
+			builder.setUnchecked(setting, value);
+		}
+		catch (IllegalArgumentException e) {
+			throw new IOException("Invalid value for the setting " + key, e);
+		}
+	}
+	
+	private Object readValue(DataInputStream data, String[] codecNames) throws IOException {
+		short index = data.readShort();
+		if (index == SnapshotFormat.NULL_VALUE) {
+			return null;
+		}
+		
+		if (index < 0 || index >= codecNames.length) {
+			throw new IOException("Invalid codec index " + index);
+		}
+		
+		Codec<?> codec = codecs.get(codecNames[index]);
+		if (codec == null) {
+			throw new IOException("No codec with name " + codecNames[index]);
+		}
+		
+		return codec.read(data);
+	}
+}
@@ -0,0 +1,93 @@
+package com.github.liebharc.rsettings.persistence;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.liebharc.rsettings.Reject;
+import com.github.liebharc.rsettings.immutable.ReadSetting;
+import com.github.liebharc.rsettings.immutable.State;
+
+/**
+ * Writes the values of all settings of a state which should be stored 
+ * (@see ReadSetting#shouldBeStored()) to a binary snapshot. 
+ */
+public final class SnapshotWriter {
+	
+	private final Codecs codecs;
+	
+	public SnapshotWriter(Codecs codecs) {
+		Reject.ifNull(codecs);
+		this.codecs = codecs;
+	}
+	
+	/**
+	 * Writes a snapshot. The stream is flushed but not closed.
+	 * @param state The state.
+	 * @param output The stream.
+	 * @throws IOException if the stream can't be written or if there is no codec for a value.
+	 */
+	@SuppressWarnings("unchecked") // The codec has been registered for the class of the value
+	public void write(State state, OutputStream output) throws IOException {
+		Reject.ifNull(state);
+		Reject.ifNull(output);
+		List<ReadSetting<?>> stored = new ArrayList<>();
+		List<String> codecNames = new ArrayList<>();
+		Map<String, Short> codecIndices = new HashMap<>();
+		for (ReadSetting<?> setting : state.listSettings()) {
+			if (!setting.shouldBeStored()) {
+				continue;
+			}
+			
+			Object value = state.get(setting);
+			if (value != null) {
+				String name = codecs.nameOf(value);
+				if (name == null) {
+					throw new IOException("No codec for values of type " + value.getClass().getName());
+				}
+				
+				if (!codecIndices.containsKey(name)) {
+					codecIndices.put(name, (short)codecNames.size());
+					codecNames.add(name);
+				}
+			}
+			
+			stored.add(setting);
+		}
+		
+		DataOutputStream data = new DataOutputStream(output);
+		data.writeInt(SnapshotFormat.MAGIC);
+		data.writeShort(SnapshotFormat.VERSION);
+		writeTable(data, codecNames);
+		List<String> keys = new ArrayList<>(stored.size());
+		for (ReadSetting<?> setting : stored) {
+			keys.add(SnapshotFormat.keyOf(setting));
+		}
+		
+		writeTable(data, keys);
+		for (ReadSetting<?> setting : stored) {
+			Object value = state.get(setting);
+			if (value == null) {
+				data.writeShort(SnapshotFormat.NULL_VALUE);
+				continue;
+			}
+			
+			String name = codecs.nameOf(value);
+			data.writeShort(codecIndices.get(name));
+			((Codec<Object>)codecs.get(name)).write(value, data);
+		}
+		
+		data.flush();
+	}
+	
+	private static void writeTable(DataOutputStream data, List<String> table) throws IOException {
+		data.writeInt(table.size());
+		for (String entry : table) {
+			data.writeUTF(entry);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package com.github.liebharc.rsettings.immutable;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 import org.junit.Test;
 import static org.assertj.core.api.Assertions.*;
@@ -14,7 +15,11 @@ public class BogusPerfTest {
 	private static final int NANO_TO_MILLI = 1000000;
 
 	public Register createRegister(int numberOfSettings, List<DistanceInM> distances) {
-		Register reg = new Register();
+		return createRegister(numberOfSettings, distances, PropagationMode.Sequential);
+	}
+	
+	public Register createRegister(int numberOfSettings, List<DistanceInM> distances, PropagationMode mode) {
+		Register reg = new Register(mode);
 		for (int i = 0; i < numberOfSettings / 2; i++) {
 			DistanceInM m = new DistanceInM();
 			reg.add(m);
@@ -48,6 +53,39 @@ public class BogusPerfTest {
 		assertThat(setOneAverage).isLessThan(2.0);
 	}
 	
+	@Test
+	public void propagationModes() throws CheckFailedException {
+		for (PropagationMode mode : PropagationMode.values()) {
+			assertSameResultAsSequential(mode);
+		}
+	}
+	
+	private void assertSameResultAsSequential(PropagationMode mode) throws CheckFailedException {
+		List<DistanceInM> sequentialWriters = new ArrayList<>();
+		State sequential = new State(createRegister(1000, sequentialWriters));
+		List<DistanceInM> otherWriters = new ArrayList<>();
+		State other = new State(createRegister(1000, otherWriters, mode));
+		
+		State.Builder sequentialBuilder = sequential.change();
+		State.Builder otherBuilder = other.change();
+		for (int i = 0; i < sequentialWriters.size(); i++) {
+			sequentialBuilder.set(sequentialWriters.get(i), (double)i);
+			otherBuilder.set(otherWriters.get(i), (double)i);
+		}
+		
+		sequential = sequentialBuilder.build();
+		other = otherBuilder.build();
+		
+		List<ReadSetting<?>> sequentialSettings = new ArrayList<>(sequential.listSettings());
+		List<ReadSetting<?>> otherSettings = new ArrayList<>(other.listSettings());
+		for (int i = 0; i < sequentialSettings.size(); i++) {
+			assertThat(other.get(otherSettings.get(i))).isEqualTo(sequential.get(sequentialSettings.get(i)));
+		}
+		
+		assertThat(other.getChanges().stream().map(ReadSetting::getSlot).collect(Collectors.toList()))
+			.isEqualTo(sequential.getChanges().stream().map(ReadSetting::getSlot).collect(Collectors.toList()));
+	}
+	
 	private double average(List<Integer> values) {
 		return values.stream().mapToInt(i -> i).average().getAsDouble();
 	}
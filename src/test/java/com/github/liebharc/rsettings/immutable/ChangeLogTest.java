@@ -0,0 +1,50 @@
+package com.github.liebharc.rsettings.immutable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ChangeLogTest {
+	
+	private static BitSet slot(int slot) {
+		BitSet touched = new BitSet();
+		touched.set(slot);
+		return touched;
+	}
+	
+	@Test
+	public void recentAncestorsAreAlwaysFound() {
+		List<ChangeLog> entries = new ArrayList<>();
+		ChangeLog log = ChangeLog.initial(0);
+		entries.add(log);
+		for (int version = 1; version <= 5 * ChangeLog.MAX_LENGTH; version++) {
+			log = log.append(version, slot(version));
+			entries.add(log);
+		}
+		
+		for (int version = 1; version < entries.size(); version++) {
+			assertThat(entries.get(version).touchedSince(entries.get(version - 1)))
+				.isEqualTo(slot(version));
+		}
+		
+		BitSet expected = new BitSet();
+		expected.set(entries.size() - ChangeLog.MAX_LENGTH, entries.size());
+		assertThat(log.touchedSince(entries.get(entries.size() - ChangeLog.MAX_LENGTH - 1)))
+			.isEqualTo(expected);
+	}
+	
+	@Test
+	public void oldAncestorsAreForgotten() {
+		ChangeLog initial = ChangeLog.initial(0);
+		ChangeLog log = initial;
+		for (int version = 1; version <= 3 * ChangeLog.MAX_LENGTH; version++) {
+			log = log.append(version, slot(version));
+		}
+		
+		assertThat(log.touchedSince(initial)).isNull();
+	}
+}
@@ -63,6 +63,44 @@ public class DependencyGraphTest {
 		assertThat(getDependencies(graph, model.dependsOnPlaceholder)).isEmpty();
 	}
 	
+	@Test
+	public void groupByComponent() {
+		Model model = new Model();
+		DependencyGraph graph = new DependencyGraph(model.settings);
+		List<List<ReadSetting<?>>> components = 
+				graph.groupByComponent(Arrays.asList(model.d, model.c, model.a, model.b, model.dependsOnPlaceholder));
+		assertThat(components).containsExactly(
+				Arrays.asList(model.a),
+				Arrays.asList(model.c, model.b, model.dependsOnPlaceholder),
+				Arrays.asList(model.d));
+	}
+	
+	@Test
+	public void wavefront() {
+		Model model = new Model();
+		DependencyGraph graph = new DependencyGraph(model.settings);
+		assertThat(graph.isLayered()).isTrue();
+		
+		DependencyGraph.Wavefront wavefront = graph.getWavefront(Arrays.asList(model.b, model.c));
+		List<List<ReadSetting<?>>> levels = new ArrayList<>();
+		while (wavefront.moveNext()) {
+			List<ReadSetting<?>> level = new ArrayList<>();
+			for (int rank : wavefront.current()) {
+				level.add(wavefront.getSetting(rank));
+				wavefront.changed(rank);
+			}
+			
+			levels.add(level);
+		}
+		
+		assertThat(levels).containsExactly(
+				Arrays.asList(model.b, model.c),
+				Arrays.asList(model.dependsOnB),
+				Arrays.asList(model.dependsOnBAndC),
+				Arrays.asList(model.dependsOnBAndCPlaceholder),
+				Arrays.asList(model.dependsOnPlaceholder));
+	}
+	
 	private List<ReadSetting<?>> getDependencies(DependencyGraph graph, ReadSetting<?> setting) {
 		List<ReadSetting<?>> result = new ArrayList<>();
 		List<ReadSetting<?>> settings = new ArrayList<>();
@@ -0,0 +1,143 @@
+package com.github.liebharc.rsettings.immutable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.Test;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+
+public class PrimitiveSettingTest {
+	
+	private static class Meters extends ReadWriteDoubleSetting {
+		
+		public Meters() {
+			super(0.0, NoDependencies());
+		}
+	}
+	
+	private static class Kilometers extends DoubleSetting {
+		
+		private final Meters meters;
+		
+		public Kilometers(Meters meters) {
+			super(0.0, Dependencies(meters));
+			this.meters = meters;
+		}
+		
+		@Override
+		protected double updateDouble(State state) throws CheckFailedException {
+			return state.getDouble(meters) / 1000.0;
+		}
+	}
+	
+	private static class Count extends ReadWriteIntSetting {
+		
+		public Count() {
+			super(0, NoDependencies());
+		}
+		
+		@Override
+		protected int updateInt(State state) throws CheckFailedException {
+			int value = state.getInt(this);
+			if (value < 0) {
+				throw new CheckFailedException("Count must not be negative");
+			}
+			
+			return value;
+		}
+	}
+	
+	private static class IsLong extends BooleanSetting {
+		
+		private final Kilometers kilometers;
+		
+		public IsLong(Kilometers kilometers) {
+			super(false, Dependencies(kilometers));
+			this.kilometers = kilometers;
+		}
+		
+		@Override
+		protected boolean updateBoolean(State state) throws CheckFailedException {
+			return state.getDouble(kilometers) > 10.0;
+		}
+	}
+	
+	private static class Timestamp extends ReadWriteLongSetting {
+		
+		public Timestamp() {
+			super(Long.MIN_VALUE, NoDependencies());
+		}
+	}
+	
+	private final Register reg = new Register();
+	private final Meters meters = reg.add(new Meters());
+	private final Kilometers kilometers = reg.add(new Kilometers(meters));
+	private final IsLong isLong = reg.add(new IsLong(kilometers));
+	private final Count count = reg.add(new Count());
+	private final Timestamp timestamp = reg.add(new Timestamp());
+	
+	@Test
+	public void defaultValues() {
+		State state = new State(reg);
+		assertThat(state.getDouble(meters)).isEqualTo(0.0);
+		assertThat(state.getBoolean(isLong)).isFalse();
+		assertThat(state.getInt(count)).isEqualTo(0);
+		assertThat(state.getLong(timestamp)).isEqualTo(Long.MIN_VALUE);
+		assertThat(state.get(timestamp)).isEqualTo(Long.MIN_VALUE);
+	}
+	
+	@Test
+	public void propagateChanges() throws CheckFailedException {
+		State state = new State(reg);
+		state = state.change().setDouble(meters, 12000.0).build();
+		assertThat(state.getDouble(kilometers)).isEqualTo(12.0);
+		assertThat(state.get(kilometers)).isEqualTo(12.0);
+		assertThat(state.getBoolean(isLong)).isTrue();
+		assertThat(state.getChanges()).containsExactly(meters, kilometers, isLong);
+		
+		state = state.change().set(meters, 11000.0).build();
+		assertThat(state.getDouble(kilometers)).isEqualTo(11.0);
+		assertThat(state.getChanges()).containsExactly(meters, kilometers, isLong);
+	}
+	
+	@Test
+	public void checksArePerformed() throws CheckFailedException {
+		State state = new State(reg).change().setInt(count, 5).setLong(timestamp, 42L).build();
+		assertThat(state.getInt(count)).isEqualTo(5);
+		assertThat(state.getLong(timestamp)).isEqualTo(42L);
+		
+		final State previous = state;
+		assertThatThrownBy(() -> previous.change().setInt(count, -1).build())
+			.isInstanceOf(CheckFailedException.class);
+	}
+	
+	@Test
+	public void mergePrimitiveValues() throws CheckFailedException {
+		State state = new State(reg);
+		State first = state.change().setDouble(meters, 500.0).build();
+		State second = state.change().setInt(count, 3).build();
+		State merged = second.merge(first);
+		assertThat(merged.getDouble(meters)).isEqualTo(500.0);
+		assertThat(merged.getDouble(kilometers)).isEqualTo(0.5);
+		assertThat(merged.getInt(count)).isEqualTo(3);
+	}
+	
+	@Test
+	public void foreignPrimitiveSettingsAreRejected() {
+		State state = new State(reg);
+		Register other = new Register();
+		Count foreign = other.add(new Count());
+		assertThatThrownBy(() -> state.getInt(foreign))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+	
+	@Test
+	public void primitiveSettingsRejectNull() {
+		State state = new State(reg);
+		assertThatThrownBy(() -> state.change().set(count, (Integer)null))
+			.isInstanceOf(IllegalArgumentException.class)
+			.hasMessageContaining("null");
+		assertThatThrownBy(() -> state.change().setUnchecked(count, null))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+}
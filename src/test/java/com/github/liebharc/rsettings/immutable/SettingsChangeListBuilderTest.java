@@ -0,0 +1,24 @@
+package com.github.liebharc.rsettings.immutable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.Test;
+
+import com.github.liebharc.rsettingsexample.immutable.*;
+
+public class SettingsChangeListBuilderTest {
+
+	@Test
+	public void lastChangeDefinesOrder() {
+		Name first = new Name();
+		Name second = new Name();
+		Name third = new Name();
+		SettingsChangeListBuilder builder = new SettingsChangeListBuilder();
+		builder.add(first);
+		builder.add(second);
+		builder.add(third);
+		builder.add(first);
+		builder.add(second);
+		assertThat(builder.build()).containsExactly(third, first, second);
+	}
+}
@@ -3,6 +3,7 @@ package com.github.liebharc.rsettings.immutable;
 import static org.assertj.core.api.Assertions.*;
 
 import com.github.liebharc.rsettings.CheckFailedException;
+import com.github.liebharc.rsettings.StateInitException;
 import com.github.liebharc.rsettings.immutable.State;
 import com.github.liebharc.rsettingsexample.immutable.*;
 import com.github.liebharc.rsettingsexample.immutable.MetricDouble.Prefix;
@@ -16,6 +17,72 @@ import java.util.stream.Collectors;
 import org.junit.*;
 
 public class StateTest {
+	
+	/**
+	 * Converts to meters again and remembers a builder created from the state during the update.
+	 */
+	private static class KmInM extends ReadSetting<Double> {
+		private final DistanceInKm km;
+		
+		private State.Builder builderDuringUpdate;
+		
+		KmInM(DistanceInKm km) {
+			super(0.0, Dependencies(km));
+			this.km = km;
+		}
+		
+		@Override
+		protected Optional<Double> update(State state) throws CheckFailedException {
+			builderDuringUpdate = state.change();
+			return Optional.of(state.get(km) * 1000.0);
+		}
+	}
+	
+	private static class Failing extends ReadSetting<Double> {
+		private final String message;
+		
+		Failing(DistanceInM m, String message) {
+			super(0.0, Dependencies(m));
+			this.message = message;
+		}
+		
+		@Override
+		protected Optional<Double> update(State state) throws CheckFailedException {
+			throw new IllegalStateException(message);
+		}
+	}
+	
+	private static class NonNegative extends ReadSetting<Double> {
+		private final DistanceInM m;
+		
+		NonNegative(DistanceInM m) {
+			super(0.0, Dependencies(m));
+			this.m = m;
+		}
+		
+		@Override
+		protected Optional<Double> update(State state) throws CheckFailedException {
+			if (state.get(m) < 0.0) {
+				throw new CheckFailedException("Distance must not be negative");
+			}
+			
+			return Optional.of(state.get(m));
+		}
+	}
+	
+	private static class Doubled extends ReadSetting<Double> {
+		private final KmInM source;
+		
+		Doubled(KmInM source) {
+			super(0.0, Dependencies(source));
+			this.source = source;
+		}
+		
+		@Override
+		protected Optional<Double> update(State state) throws CheckFailedException {
+			return Optional.of(state.get(source) * 2.0);
+		}
+	}
 
 	@Test
 	public void initASetting() {
@@ -49,6 +116,200 @@ public class StateTest {
 		assertThat(state.get(km)).isEqualTo(1.0);
 	}
 	
+	@Test
+	public void updatesReadTheValuesOfThePropagation() throws CheckFailedException {
+		Register reg = new Register();
+		DistanceInM m = reg.add(new DistanceInM());
+		DistanceInKm km = reg.add(new DistanceInKm(m));
+		KmInM kmInM = reg.add(new KmInM(km));
+		Doubled doubled = reg.add(new Doubled(kmInM));
+		State state = new State(reg).change()
+				.set(m, 1000.0)
+				.build();
+		assertThat(state.get(kmInM)).isEqualTo(1000.0);
+		assertThat(state.get(doubled)).isEqualTo(2000.0);
+		
+		State derived = kmInM.builderDuringUpdate.build();
+		assertThat(derived.get(km)).isEqualTo(1.0);
+		assertThat(derived.get(doubled)).isEqualTo(0.0);
+	}
+	
+	@Test
+	public void changeTheInFlightStateInParallel() throws CheckFailedException {
+		Register reg = new Register(PropagationMode.Parallel);
+		Name name = reg.add(new Name());
+		DistanceInM m = reg.add(new DistanceInM());
+		DistanceInKm km = reg.add(new DistanceInKm(m));
+		KmInM kmInM = reg.add(new KmInM(km));
+		Doubled doubled = reg.add(new Doubled(kmInM));
+		State state = new State(reg).change()
+				.set(name, "Peter")
+				.set(m, 1000.0)
+				.build();
+		assertThat(state.get(doubled)).isEqualTo(2000.0);
+		
+		State derived = kmInM.builderDuringUpdate.build();
+		assertThat(derived.get(km)).isEqualTo(1.0);
+		assertThat(derived.get(doubled)).isEqualTo(0.0);
+	}
+	
+	@Test
+	public void parallelPropagationThrowsTheFirstError() {
+		for (PropagationMode mode : new PropagationMode[] { PropagationMode.Parallel, PropagationMode.ParallelWavefront }) {
+			assertThatFirstErrorIsThrown(mode);
+		}
+	}
+	
+	private static void assertThatFirstErrorIsThrown(PropagationMode mode) {
+		Register reg = new Register(mode);
+		DistanceInM first = reg.add(new DistanceInM());
+		reg.add(new Failing(first, "first"));
+		DistanceInM second = reg.add(new DistanceInM());
+		reg.add(new Failing(second, "second"));
+		State state = new State(reg);
+		for (int i = 0; i < 20; i++) {
+			assertThatThrownBy(() -> state.change().set(first, 1.0).set(second, 1.0).build())
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessage("first");
+		}
+	}
+	
+	@Test
+	public void foreignSettingsAreRejected() {
+		Register reg = new Register();
+		reg.add(new Name());
+		State state = new State(reg);
+		Register other = new Register();
+		Name foreign = other.add(new Name());
+		assertThatThrownBy(() -> state.get(foreign))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+	
+	@Test
+	public void foreignSettingsHaveNotChanged() throws CheckFailedException {
+		Register reg = new Register();
+		Name name = reg.add(new Name());
+		State state = new State(reg).change()
+				.set(name, "Peter")
+				.build();
+		Register other = new Register();
+		Name foreign = other.add(new Name());
+		assertThat(foreign.getSlot()).isEqualTo(name.getSlot());
+		assertThat(state.hasChanged(name)).isTrue();
+		assertThat(state.hasChanged(foreign)).isFalse();
+		assertThat(state.contains(name)).isTrue();
+		assertThat(state.contains(foreign)).isFalse();
+	}
+	
+	@Test
+	public void offHeapStorage() throws CheckFailedException {
+		PagePool pool = new PagePool();
+		Register reg = new Register(PropagationMode.Sequential, pool);
+		DistanceInM m = reg.add(new DistanceInM());
+		DistanceInKm km = reg.add(new DistanceInKm(m));
+		State initial = new State(reg);
+		int pooled = pool.getNumberOfPooledPages();
+		State state = initial.change()
+				.set(m, 1000.0)
+				.build();
+		assertThat(pool.getNumberOfPooledPages()).isEqualTo(pooled - 1);
+		initial.release();
+		assertThat(pool.getNumberOfPooledPages()).isEqualTo(pooled);
+		assertThat(state.get(m)).isEqualTo(1000.0);
+		assertThat(state.get(km)).isEqualTo(1.0);
+		state.release();
+		assertThat(pool.getNumberOfPooledPages()).isEqualTo(pool.getNumberOfAllocatedPages());
+	}
+	
+	@Test
+	public void inFlightStatesDontRetainPages() throws CheckFailedException {
+		for (PropagationMode mode : PropagationMode.values()) {
+			PagePool pool = new PagePool();
+			Register reg = new Register(mode, pool);
+			DistanceInM m = reg.add(new DistanceInM());
+			DistanceInKm km = reg.add(new DistanceInKm(m));
+			KmInM kmInM = reg.add(new KmInM(km));
+			State initial = new State(reg);
+			State state = initial.change()
+					.set(m, 1000.0)
+					.build();
+			assertThat(kmInM.builderDuringUpdate).isNotNull();
+			initial.release();
+			state.release();
+			assertThat(pool.getNumberOfPooledPages()).isEqualTo(pool.getNumberOfAllocatedPages());
+		}
+	}
+	
+	@Test
+	public void failedTransactionsDontTakePages() {
+		for (PropagationMode mode : PropagationMode.values()) {
+			PagePool pool = new PagePool();
+			Register reg = new Register(mode, pool);
+			DistanceInM m = reg.add(new DistanceInM());
+			reg.add(new NonNegative(m));
+			reg.add(new DistanceInKm(m));
+			State initial = new State(reg);
+			int allocated = pool.getNumberOfAllocatedPages();
+			int pooled = pool.getNumberOfPooledPages();
+			for (int i = 1; i <= 1000; i++) {
+				State.Builder failing = initial.change().set(m, -1.0 * i);
+				assertThatThrownBy(failing::build).isInstanceOf(CheckFailedException.class);
+				initial.change().set(m, 1.0 * i);
+			}
+			
+			assertThat(pool.getNumberOfAllocatedPages()).isEqualTo(allocated);
+			assertThat(pool.getNumberOfPooledPages()).isEqualTo(pooled);
+		}
+	}
+	
+	@Test
+	public void findByKey() {
+		Register reg = new Register();
+		Name name = reg.add("person.name", new Name());
+		DistanceInM m = reg.add(new DistanceInM());
+		State state = new State(reg);
+		assertThat(name.getKey()).isEqualTo("person.name");
+		assertThat(m.getKey()).isNull();
+		assertThat(reg.findByKey("person.name")).contains(name);
+		assertThat(state.findByKey("person.name")).contains(name);
+		assertThat(state.findByKey("person.age")).isEmpty();
+	}
+	
+	@Test
+	public void keysMustBeUnique() {
+		Register reg = new Register();
+		reg.add("person.name", new Name());
+		assertThatThrownBy(() -> reg.add("person.name", new Name()))
+			.isInstanceOf(StateInitException.class);
+	}
+	
+	@Test
+	public void failedAddsDontAssignKeys() {
+		Register reg = new Register();
+		DistanceInM m = new DistanceInM();
+		DistanceInKm km = new DistanceInKm(m);
+		assertThatThrownBy(() -> reg.add("km", km))
+			.isInstanceOf(StateInitException.class);
+		assertThat(km.getKey()).isNull();
+		assertThat(reg.findByKey("km")).isEmpty();
+		
+		reg.add(m);
+		assertThat(reg.add("km", km).getKey()).isEqualTo("km");
+		assertThat(reg.findByKey("km")).contains(km);
+		assertThatThrownBy(() -> reg.add("m", m))
+			.isInstanceOf(StateInitException.class);
+		assertThat(m.getKey()).isNull();
+		assertThat(reg.findByKey("m")).isEmpty();
+	}
+	
+	@Test
+	public void keysMustNotLookLikeGeneratedKeys() {
+		Register reg = new Register();
+		assertThatThrownBy(() -> reg.add(Name.class.getName() + "#0", new Name()))
+			.isInstanceOf(IllegalArgumentException.class);
+		assertThat(reg.asList()).isEmpty();
+	}
+	
 	@Test
 	public void isEnabled() throws CheckFailedException {
 		Register reg = new Register();
@@ -87,6 +348,7 @@ public class StateTest {
 		assertThat(state.hasChanged(name)).isFalse();
 		assertThat(state.hasChanged(m)).isTrue();
 		assertThat(state.hasChanged(km)).isTrue();
+		assertThat(state.getChangedSlots().stream()).containsExactly(m.getSlot(), km.getSlot());
 	}
 	
 	@Test
@@ -141,6 +403,42 @@ public class StateTest {
 		assertThat(withSomeChanges.hasBeenTouched(km, reference)).isTrue();
 	}
 	
+	@Test
+	public void trackChangesToADistantReferencePoint() throws CheckFailedException {
+		Register reg = new Register();
+		Name name = reg.add(new Name());
+		DistanceInM m = reg.add(new DistanceInM());
+		DistanceInKm km = reg.add(new DistanceInKm(m));
+		State reference = new State(reg);
+		State state = reference.change()
+				.set(m, 1.0)
+				.build();
+		for (int i = 0; i < 2 * ChangeLog.MAX_LENGTH; i++) {
+			state = state.change()
+					.set(name, "Peter" + i)
+					.build();
+		}
+		
+		assertThat(state.getChanges(reference)).containsExactly(name, m, km);
+		assertThat(state.getTouchedSettings(reference)).containsExactly(name, m, km);
+	}
+	
+	@Test
+	public void trackChangesToASibling() throws CheckFailedException {
+		Register reg = new Register();
+		Name name = reg.add(new Name());
+		DistanceInM m = reg.add(new DistanceInM());
+		DistanceInKm km = reg.add(new DistanceInKm(m));
+		State state = new State(reg);
+		State sibling = state.change()
+				.set(name, "Peter")
+				.build();
+		State withSomeChanges = state.change()
+				.set(m, 1.0)
+				.build();
+		assertThat(withSomeChanges.getChanges(sibling)).containsExactly(name, m, km);
+	}
+	
 	@Test
 	public void mergeTwoDifferentSettings() throws CheckFailedException {
 		Register reg = new Register();
@@ -181,6 +479,45 @@ public class StateTest {
 		assertThat(merge.get(m)).isEqualTo(100.0);
 	}
 	
+	@Test
+	public void mergeWithAnAncestor() throws CheckFailedException {
+		Register reg = new Register();
+		Name name = reg.add(new Name());
+		State state = new State(reg);
+		State child = 
+				state.change()
+				.set(name, "Peter")
+				.build();
+		assertThat(child.merge(state)).isSameAs(child);
+	}
+	
+	@Test
+	public void mergeIsASuccessorOfOther() throws CheckFailedException {
+		Register reg = new Register();
+		Name name = reg.add(new Name());
+		DistanceInM m = reg.add(new DistanceInM());
+		DistanceInKm km = reg.add(new DistanceInKm(m));
+		State state = new State(reg);
+		State state1 = 
+				state.change()
+				.set(name, "Peter")
+				.build();
+		State state2 = 
+				state.change()
+				.set(m, 100.0)
+				.build();
+		state2 = 
+				state2.change()
+				.set(m, 200.0)
+				.build();
+		State merge = state1.merge(state2);
+		assertThat(merge.get(name)).isEqualTo("Peter");
+		assertThat(merge.get(m)).isEqualTo(200.0);
+		assertThat(merge.get(km)).isEqualTo(0.2);
+		assertThat(merge.getChanges(state2)).containsExactly(name);
+		assertThat(merge.getChanges(state)).containsExactly(name, m, km);
+	}
+	
 	@Test
 	public void convertTo() throws CheckFailedException {
 		Register reg = new Register();
@@ -272,6 +609,25 @@ public class StateTest {
 				+ "com.github.liebharc.rsettingsexample.immutable.DistanceInM");
 	}
 	
+	@Test
+	public void settingCanOnlyBeAddedToOneRegister() {
+		Register reg = new Register();
+		Name name = reg.add(new Name());
+		assertThatThrownBy(() -> new Register().add(name))
+			.hasMessage("Setting has already been added to a register");
+	}
+	
+	@Test
+	public void settingOfAnotherRegister() {
+		Register reg = new Register();
+		reg.add(new Name());
+		Register otherReg = new Register();
+		Name otherName = otherReg.add(new Name());
+		State state = new State(reg);
+		assertThatThrownBy(() -> state.change().set(otherName, "Peter"))
+			.hasMessage("Setting is not part of this state");
+	}
+	
 	@Test
 	public void undoChangeInATransactionTest() throws CheckFailedException {
 		Register reg = new Register();
@@ -0,0 +1,120 @@
+package com.github.liebharc.rsettings.immutable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.liebharc.rsettingsexample.immutable.*;
+
+public class ValuesTest {
+
+	private static List<ReadSetting<?>> createSettings(int numberOfSettings) {
+		Register reg = new Register();
+		for (int i = 0; i < numberOfSettings; i++) {
+			reg.add(new Name());
+		}
+
+		return reg.asList();
+	}
+
+	@Test
+	public void defaultValues() {
+		List<ReadSetting<?>> settings = createSettings(5000);
+		Values values = Values.create(settings);
+		for (ReadSetting<?> setting : settings) {
+			assertThat(values.getValue(setting)).isEqualTo("");
+			assertThat(values.getVersion(setting)).isEqualTo(0);
+		}
+	}
+
+	@Test
+	public void changesDontAffectPreviousValues() {
+		List<ReadSetting<?>> settings = createSettings(5000);
+		Values original = Values.create(settings);
+		Values.Builder builder = original.change();
+		builder.update(settings.get(1234), "Peter", 1);
+		Values first = builder.build();
+		builder.update(settings.get(1234), "Paul", 2);
+		builder.update(settings.get(4999), "Mary", 2);
+		Values second = builder.build();
+
+		assertThat(original.getValue(settings.get(1234))).isEqualTo("");
+		assertThat(first.getValue(settings.get(1234))).isEqualTo("Peter");
+		assertThat(first.getValue(settings.get(4999))).isEqualTo("");
+		assertThat(second.getValue(settings.get(1234))).isEqualTo("Paul");
+		assertThat(second.getValue(settings.get(4999))).isEqualTo("Mary");
+		assertThat(second.getValue(settings.get(0))).isEqualTo("");
+		assertThat(original.getVersion(settings.get(1234))).isEqualTo(0);
+		assertThat(first.getVersion(settings.get(1234))).isEqualTo(1);
+		assertThat(second.getVersion(settings.get(1234))).isEqualTo(2);
+		assertThat(second.getVersion(settings.get(4999))).isEqualTo(2);
+	}
+
+	@Test
+	public void offHeapValues() {
+		List<ReadSetting<?>> settings = createSettings(5000);
+		PagePool pool = new PagePool();
+		Values original = Values.create(settings, pool);
+		Values.Builder builder = original.change();
+		builder.update(settings.get(1234), "Peter", 1);
+		Values first = builder.build();
+		builder.update(settings.get(1234), "Paul", 2);
+		Values second = builder.build();
+
+		assertThat(original.getValue(settings.get(1234))).isEqualTo("");
+		assertThat(first.getValue(settings.get(1234))).isEqualTo("Peter");
+		assertThat(second.getValue(settings.get(1234))).isEqualTo("Paul");
+		assertThat(original.getVersion(settings.get(1234))).isEqualTo(0);
+		assertThat(first.getVersion(settings.get(1234))).isEqualTo(1);
+		assertThat(second.getVersion(settings.get(1234))).isEqualTo(2);
+	}
+
+	@Test
+	public void releaseReturnsUnsharedPages() {
+		List<ReadSetting<?>> settings = createSettings(5000);
+		PagePool pool = new PagePool();
+		Values original = Values.create(settings, pool);
+		Values.Builder builder = original.change();
+		builder.update(settings.get(1234), "Peter", 1);
+		Values first = builder.build();
+
+		int pooled = pool.getNumberOfPooledPages();
+		original.release();
+		assertThat(pool.getNumberOfPooledPages()).isEqualTo(pooled + 1);
+		assertThat(first.getValue(settings.get(1234))).isEqualTo("Peter");
+		assertThat(first.getValue(settings.get(0))).isEqualTo("");
+
+		first.release();
+		first.release();
+		assertThat(pool.getNumberOfPooledPages()).isEqualTo(pool.getNumberOfAllocatedPages());
+	}
+
+	@Test
+	public void builderSnapshotsDontRetainPages() {
+		List<ReadSetting<?>> settings = createSettings(5000);
+		PagePool pool = new PagePool();
+		Values original = Values.create(settings, pool);
+		Values.Builder builder = original.change();
+		builder.update(settings.get(1234), "Peter", 1);
+		Values snapshot = builder.snapshot();
+		builder.update(settings.get(1234), "Paul", 2);
+		Values first = builder.build();
+
+		assertThat(snapshot.getValue(settings.get(1234))).isEqualTo("Peter");
+		assertThat(first.getValue(settings.get(1234))).isEqualTo("Paul");
+
+		snapshot.release();
+		original.release();
+		first.release();
+		assertThat(pool.getNumberOfPooledPages()).isEqualTo(pool.getNumberOfAllocatedPages());
+	}
+
+	@Test
+	public void unknownSetting() {
+		Values values = Values.create(createSettings(10));
+		assertThatThrownBy(() -> values.getValue(new Name()))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+}
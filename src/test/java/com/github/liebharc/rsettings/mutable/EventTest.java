@@ -2,6 +2,10 @@ package com.github.liebharc.rsettings.mutable;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Flow;
 import java.util.function.Consumer;
 
 import org.junit.Test;
@@ -25,4 +29,185 @@ public class EventTest {
 		publisher.raise(3);
 		assertThat(value).isEqualTo(2);
 	}
+	
+	@Test
+	public void subscribeWhileRaising() {
+		EventPublisher<Integer> publisher = new EventPublisher<Integer>();
+		Event<Integer> event = publisher.getEvent();
+		IntBox numberOfCalls = new IntBox();
+		Consumer<Integer> listener = i -> numberOfCalls.increment();
+		event.subscribe(i -> event.subscribe(listener));
+		publisher.raise(1);
+		assertThat(numberOfCalls).isEqualTo(0);
+		publisher.raise(2);
+		assertThat(numberOfCalls).isEqualTo(1);
+	}
+	
+	private static List<Integer> raiseAsync(BackPressure backPressure, int capacity, int... values) {
+		List<Runnable> tasks = new ArrayList<>();
+		List<Integer> delivered = new ArrayList<>();
+		AsyncListener<Integer> listener = 
+				new AsyncListener<>(delivered::add, tasks::add, backPressure, capacity, Comparator.naturalOrder());
+		for (int value : values) {
+			listener.accept(value);
+		}
+		
+		assertThat(delivered).isEmpty();
+		while (!tasks.isEmpty()) {
+			tasks.remove(0).run();
+		}
+		
+		return delivered;
+	}
+	
+	@Test
+	public void asyncListenerKeepsOrder() {
+		assertThat(raiseAsync(BackPressure.Block, 10, 3, 1, 2)).containsExactly(1, 2, 3);
+	}
+	
+	@Test
+	public void asyncListenerDrops() {
+		assertThat(raiseAsync(BackPressure.Drop, 2, 1, 2, 3)).containsExactly(1, 2);
+	}
+	
+	@Test
+	public void asyncListenerCoalesces() {
+		assertThat(raiseAsync(BackPressure.Coalesce, 1, 1, 2, 3)).containsExactly(3);
+	}
+	
+	@Test
+	public void asyncListenerDropsOutdatedEvents() {
+		List<Integer> delivered = new ArrayList<>();
+		AsyncListener<Integer> listener = 
+				new AsyncListener<>(delivered::add, Runnable::run, BackPressure.Block, 1, Comparator.naturalOrder());
+		listener.accept(2);
+		listener.accept(1);
+		listener.accept(3);
+		assertThat(delivered).containsExactly(2, 3);
+	}
+	
+	@Test
+	public void asyncListenerDoesNotBlockOnItsOwnEvents() {
+		List<Integer> delivered = new ArrayList<>();
+		List<AsyncListener<Integer>> self = new ArrayList<>();
+		AsyncListener<Integer> listener = new AsyncListener<>(
+				value -> {
+					delivered.add(value);
+					if (value == 1) {
+						self.get(0).accept(2);
+						self.get(0).accept(3);
+					}
+				}, 
+				Runnable::run, 
+				BackPressure.Block, 
+				1, 
+				Comparator.naturalOrder());
+		self.add(listener);
+		listener.accept(1);
+		assertThat(delivered).containsExactly(1, 3);
+	}
+	
+	private static class RecordingSubscriber implements Flow.Subscriber<Integer> {
+		
+		private final List<Integer> values = new ArrayList<>();
+		
+		private Flow.Subscription subscription;
+		
+		private Throwable error;
+		
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+		
+		@Override
+		public void onNext(Integer item) {
+			values.add(item);
+		}
+		
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+		}
+		
+		@Override
+		public void onComplete() {
+		}
+	}
+	
+	@Test
+	public void flowPublisherHonorsDemand() {
+		EventPublisher<Integer> publisher = new EventPublisher<Integer>();
+		FlowPublisher<Integer> flow = new FlowPublisher<>(publisher.getEvent());
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		flow.subscribe(subscriber);
+		publisher.raise(1);
+		assertThat(subscriber.values).isEmpty();
+		subscriber.subscription.request(1);
+		assertThat(subscriber.values).containsExactly(1);
+		publisher.raise(2);
+		publisher.raise(3);
+		assertThat(subscriber.values).containsExactly(1);
+		subscriber.subscription.request(5);
+		assertThat(subscriber.values).containsExactly(1, 3);
+		publisher.raise(4);
+		assertThat(subscriber.values).containsExactly(1, 3, 4);
+		subscriber.subscription.cancel();
+		publisher.raise(5);
+		assertThat(subscriber.values).containsExactly(1, 3, 4);
+	}
+	
+	@Test
+	public void flowPublisherRejectsInvalidDemand() {
+		EventPublisher<Integer> publisher = new EventPublisher<Integer>();
+		FlowPublisher<Integer> flow = new FlowPublisher<>(publisher.getEvent());
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		flow.subscribe(subscriber);
+		subscriber.subscription.request(0);
+		assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+		publisher.raise(1);
+		subscriber.subscription.request(1);
+		assertThat(subscriber.values).isEmpty();
+	}
+	
+	@Test
+	public void flowPublisherCancelsFailingSubscribers() {
+		EventPublisher<Integer> publisher = new EventPublisher<Integer>();
+		FlowPublisher<Integer> flow = new FlowPublisher<>(publisher.getEvent());
+		RecordingSubscriber failing = new RecordingSubscriber() {
+			@Override
+			public void onNext(Integer item) {
+				super.onNext(item);
+				throw new IllegalStateException("Subscriber failed");
+			}
+		};
+		RecordingSubscriber other = new RecordingSubscriber();
+		flow.subscribe(failing);
+		flow.subscribe(other);
+		failing.subscription.request(10);
+		other.subscription.request(10);
+		publisher.raise(1);
+		publisher.raise(2);
+		assertThat(failing.values).containsExactly(1);
+		assertThat(other.values).containsExactly(1, 2);
+	}
+	
+	@Test
+	public void flowPublisherCancelsSubscribersWhichFailOnSubscribe() {
+		EventPublisher<Integer> publisher = new EventPublisher<Integer>();
+		FlowPublisher<Integer> flow = new FlowPublisher<>(publisher.getEvent());
+		RecordingSubscriber failing = new RecordingSubscriber() {
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				super.onSubscribe(subscription);
+				subscription.request(10);
+				throw new IllegalStateException("Subscriber failed");
+			}
+		};
+		flow.subscribe(failing);
+		publisher.raise(1);
+		failing.subscription.request(10);
+		publisher.raise(2);
+		assertThat(failing.values).isEmpty();
+	}
 }
@@ -2,7 +2,13 @@ package com.github.liebharc.rsettings.mutable;
 
 import static org.assertj.core.api.Assertions.*; 
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
@@ -146,4 +152,124 @@ public class ExecutionTest {
 		assertThat(actions.getSum()).isEqualTo(7);
 		assertThat(actions.getCallCount()).isEqualTo(5);
 	}
+	
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Enables group commit with a window which ends once the returned latch has been counted down.
+	 * @param leaderWaits Counted down when the first write of a batch starts to wait.
+	 */
+	private static CountDownLatch enableGroupCommit(Settings settings, CountDownLatch leaderWaits) {
+		CountDownLatch windowEnds = new CountDownLatch(1);
+		settings.enableGroupCommit(() -> {
+			leaderWaits.countDown();
+			await(windowEnds);
+		});
+		return windowEnds;
+	}
+	
+	@Test
+	public void groupCommit() throws Exception {
+		Settings settings = new Settings();
+		ExecutionModel actions = new ExecutionModel(settings);
+		settings.getStateChangedEvent().subscribe((state) -> actions.onStateChange(state));
+		CountDownLatch leaderWaits = new CountDownLatch(1);
+		CountDownLatch windowEnds = enableGroupCommit(settings, leaderWaits);
+		
+		CompletableFuture<State> left = CompletableFuture.supplyAsync(() -> settings.left.setValueAsync(5).join());
+		leaderWaits.await();
+		CompletableFuture<State> right = settings.right.setValueAsync(3);
+		windowEnds.countDown();
+		
+		assertThat(left.get(10, TimeUnit.SECONDS)).isSameAs(settings.getImmutableState());
+		assertThat(right.get(10, TimeUnit.SECONDS)).isSameAs(settings.getImmutableState());
+		assertThat(settings.product.getValue()).isEqualTo(15);
+		assertThat(actions.getSum()).isEqualTo(8);
+		assertThat(actions.getCallCount()).isEqualTo(1);
+	}
+	
+	@Test
+	public void groupCommitIsolatesFailures() throws Exception {
+		Settings settings = new Settings();
+		CountDownLatch leaderWaits = new CountDownLatch(1);
+		CountDownLatch windowEnds = enableGroupCommit(settings, leaderWaits);
+		
+		CompletableFuture<State> left = CompletableFuture.supplyAsync(() -> settings.left.setValueAsync(-1).join());
+		leaderWaits.await();
+		CompletableFuture<State> right = settings.right.setValueAsync(3);
+		windowEnds.countDown();
+		
+		assertThatThrownBy(() -> left.get(10, TimeUnit.SECONDS))
+			.hasCauseInstanceOf(CheckFailedException.class);
+		assertThat(right.get(10, TimeUnit.SECONDS)).isSameAs(settings.getImmutableState());
+		assertThat(settings.left.getValue()).isEqualTo(0);
+		assertThat(settings.right.getValue()).isEqualTo(3);
+	}
+	
+	@Test
+	public void groupCommitDoesNotRepeatCommittedBatches() throws Exception {
+		Settings settings = new Settings();
+		AtomicInteger commits = new AtomicInteger();
+		settings.getStateCommittedEvent().subscribe((change) -> commits.incrementAndGet());
+		settings.getStateChangedEvent().subscribe((state) -> {
+			throw new IllegalStateException("Listener failed");
+		});
+		CountDownLatch leaderWaits = new CountDownLatch(1);
+		CountDownLatch windowEnds = enableGroupCommit(settings, leaderWaits);
+		
+		CompletableFuture<State> left = CompletableFuture.supplyAsync(() -> settings.left.setValueAsync(5).join());
+		leaderWaits.await();
+		CompletableFuture<State> right = settings.right.setValueAsync(3);
+		windowEnds.countDown();
+		
+		assertThatThrownBy(() -> left.get(10, TimeUnit.SECONDS))
+			.hasRootCauseInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> right.get(10, TimeUnit.SECONDS))
+			.hasCauseInstanceOf(IllegalStateException.class);
+		assertThat(commits.get()).isEqualTo(1);
+		assertThat(settings.product.getValue()).isEqualTo(15);
+	}
+	
+	@Test
+	public void failingListenersCompleteTheFuture() {
+		Settings settings = new Settings();
+		settings.getStateChangedEvent().subscribe((state) -> {
+			throw new IllegalStateException("Listener failed");
+		});
+		
+		CompletableFuture<State> result = settings.left.setValueAsync(5);
+		assertThatThrownBy(() -> result.join())
+			.hasCauseInstanceOf(IllegalStateException.class);
+		assertThat(settings.left.getValue()).isEqualTo(5);
+	}
+	
+	@Test
+	public void executeAsync() throws Exception {
+		Settings settings = new Settings();
+		List<Runnable> tasks = new ArrayList<>();
+		CompletableFuture<State> valid = settings.startTransaction()
+			.set(settings.left, 5)
+			.set(settings.right, 3)
+			.executeAsync(tasks::add);
+		CompletableFuture<State> invalid = settings.startTransaction()
+			.set(settings.left, -1)
+			.executeAsync(tasks::add);
+		assertThat(valid).isNotDone();
+		assertThat(settings.product.getValue()).isEqualTo(0);
+		
+		for (Runnable task : tasks) {
+			task.run();
+		}
+		
+		assertThat(valid.get()).isSameAs(settings.getImmutableState());
+		assertThat(settings.product.getValue()).isEqualTo(15);
+		assertThatThrownBy(() -> invalid.join())
+			.hasCauseInstanceOf(CheckFailedException.class);
+	}
 }
@@ -2,9 +2,12 @@ package com.github.liebharc.rsettings.mutable;
 
 import static org.assertj.core.api.Assertions.assertThat; 
 
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Test;
 
 import com.github.liebharc.rsettings.CheckFailedException;
+import com.github.liebharc.rsettings.immutable.State;
 import com.github.liebharc.rsettingsexample.mutable.Name;
 
 public class SettingMutTest {	
@@ -42,4 +45,65 @@ public class SettingMutTest {
 		name.get().reset();
 		assertThat(name.get().getValue()).isEqualTo("");
 	}
+	
+	private static class Meters extends ReadWriteDoubleSettingMut {
+		
+		public Meters(RegisterMut register) {
+			super(register, 0.0, NoDependencies());
+		}
+	}
+	
+	private static class Kilometers extends DoubleSettingMut {
+		
+		private final Meters meters;
+		
+		public Kilometers(RegisterMut register, Meters meters) {
+			super(register, 0.0, Dependencies(meters));
+			this.meters = meters;
+		}
+		
+		@Override
+		protected double updateDouble(State state) {
+			return state.getDouble(meters) / 1000.0;
+		}
+	}
+	
+	private static class DistanceSettingsMut extends StateMut {
+		private final Meters meters;
+		private final Kilometers kilometers;
+		
+		public DistanceSettingsMut() {
+			meters = new Meters(getRegister());
+			kilometers = new Kilometers(getRegister(), meters);
+			getRegister().complete();
+		}
+	}
+	
+	@Test
+	public void primitiveSettings() throws CheckFailedException {
+		DistanceSettingsMut distance = new DistanceSettingsMut();
+		IntBox numberOfEvents = new IntBox();
+		distance.kilometers.getValueChangedEvent().subscribe(v -> numberOfEvents.increment());
+		distance.meters.setValue(2500.0);
+		assertThat(distance.kilometers.getDouble()).isEqualTo(2.5);
+		assertThat(distance.kilometers.getValue()).isEqualTo(2.5);
+		assertThat(numberOfEvents).isEqualTo(1);
+		distance.meters.reset();
+		assertThat(distance.kilometers.getDouble()).isEqualTo(0.0);
+	}
+	
+	@Test
+	public void primitiveWrites() throws CheckFailedException {
+		DistanceSettingsMut distance = new DistanceSettingsMut();
+		distance.startTransaction()
+			.setDouble(distance.meters, 1500.0)
+			.execute();
+		assertThat(distance.kilometers.getDouble()).isEqualTo(1.5);
+		assertThat(distance.meters.setValueAsync(3000.0).join().getDouble(distance.kilometers)).isEqualTo(3.0);
+		
+		distance.enableGroupCommit(0, TimeUnit.MILLISECONDS);
+		distance.meters.setValue(500.0);
+		assertThat(distance.kilometers.getDouble()).isEqualTo(0.5);
+		assertThat(distance.meters.setValueAsync(4000.0).join().getDouble(distance.kilometers)).isEqualTo(4.0);
+	}
 }
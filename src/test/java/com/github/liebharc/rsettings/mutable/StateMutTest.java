@@ -3,15 +3,82 @@ package com.github.liebharc.rsettings.mutable;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import org.junit.*;
 
 import com.github.liebharc.rsettings.CheckFailedException;
+import com.github.liebharc.rsettings.StateInitException;
+import com.github.liebharc.rsettings.events.BackPressure;
+import com.github.liebharc.rsettings.immutable.Register;
+import com.github.liebharc.rsettings.immutable.State;
 import com.github.liebharc.rsettingsexample.mutable.*;
 
 public class StateMutTest {
 	
+	private static class Label extends ReadWriteSettingMut<String> {
+		Label(RegisterMut register, String key) {
+			super(register, key, "", NoDependencies());
+		}
+	}
+	
+	private static class Port extends ReadWriteIntSettingMut {
+		Port(RegisterMut register) {
+			super(register, "network.port", 80, NoDependencies());
+		}
+	}
+	
+	private static class KeyFromField extends ReadWriteSettingMut<String> {
+		private final String key;
+		
+		KeyFromField(RegisterMut register, String key) {
+			super(register, "", NoDependencies());
+			this.key = key;
+		}
+		
+		@Override
+		public String getKey() {
+			return key;
+		}
+	}
+	
+	private static class KeyedNetwork extends StateMut {
+		private final Label label = new Label(getRegister(), "label");
+		private final Port port = new Port(getRegister());
+		
+		KeyedNetwork() {
+			getRegister().complete();
+		}
+	}
+	
+	@Test
+	public void findByKey() throws CheckFailedException {
+		KeyedNetwork network = new KeyedNetwork();
+		network.port.setValue(8080);
+		assertThat(network.label.getKey()).isEqualTo("label");
+		assertThat(network.port.getKey()).isEqualTo("network.port");
+		assertThat(network.findByKey("label")).contains(network.label);
+		assertThat(network.findByKey("network.port")).contains(network.port);
+		assertThat(network.findByKey("network.host")).isEmpty();
+		assertThat(network.port.getInt()).isEqualTo(8080);
+	}
+	
+	@Test
+	public void keysMustBeAvailableWhenSettingsAreAdded() {
+		StateMut state = new StateMut();
+		assertThatThrownBy(() -> new KeyFromField(state.getRegister(), "label"))
+			.isInstanceOf(StateInitException.class);
+	}
+	
 	@Test
 	public void createANetwork() {
 		ExampleNetwork network = new ExampleNetwork();
@@ -63,6 +130,174 @@ public class StateMutTest {
 		assertThat(numberOfCalls).isEqualTo(1);
 	}
 
+	@Test
+	public void valueChangedEventOnlyForChangedSettings() throws CheckFailedException {
+		ExampleNetwork network = new ExampleNetwork();
+		IntBox nameCalls = new IntBox();
+		IntBox doubleCountCalls = new IntBox();
+		network.getName().getValueChangedEvent().subscribe(i -> nameCalls.increment());
+		network.getDoubleCount().getValueChangedEvent().subscribe(i -> doubleCountCalls.increment());
+		network.getCount().setValue(3);
+		assertThat(nameCalls).isEqualTo(0);
+		assertThat(doubleCountCalls).isEqualTo(1);
+	}
+
+	@Test
+	public void asyncStateChangedEvent() throws Exception {
+		ExampleNetwork network = new ExampleNetwork();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		List<Integer> counts = Collections.synchronizedList(new ArrayList<>());
+		network.subscribeAsync(
+				state -> counts.add(state.get(network.getCount())), 
+				executor, 
+				BackPressure.Block, 
+				1);
+		for (int i = 1; i <= 5; i++) {
+			network.getCount().setValue(i);
+		}
+		
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+		assertThat(counts).containsExactly(1, 2, 3, 4, 5);
+	}
+
+	@Test
+	public void asyncListenerFollowsReinitializedStates() throws CheckFailedException {
+		ExampleNetwork network = new ExampleNetwork();
+		List<State> states = new ArrayList<>();
+		network.subscribeAsync(states::add, Runnable::run, BackPressure.Block, 10);
+		for (int i = 1; i <= 3; i++) {
+			network.getCount().setValue(i);
+		}
+		
+		network.getRegister().complete();
+		network.getCount().setValue(7);
+		
+		assertThat(states).hasSize(5);
+		assertThat(states.get(3).isSameKind(states.get(2))).isFalse();
+		assertThat(states.get(3).getVersion()).isEqualTo(0);
+		assertThat(states.get(4).get(network.getCount())).isEqualTo(7);
+	}
+	
+	@Test
+	public void conflatedStateChangedEvent() throws CheckFailedException {
+		ExampleNetwork network = new ExampleNetwork();
+		List<Runnable> tasks = new ArrayList<>();
+		List<StateChange> changes = new ArrayList<>();
+		network.subscribeConflated(changes::add, tasks::add);
+		network.getCount().setValue(1);
+		network.getCount().setValue(2);
+		network.getName().setValue("Peter");
+		assertThat(tasks).hasSize(1);
+		tasks.remove(0).run();
+		
+		assertThat(changes).hasSize(1);
+		assertThat(changes.get(0).getState().get(network.getCount())).isEqualTo(2);
+		assertThat(changes.get(0).getChanges())
+			.contains(network.getCount(), network.getDoubleCount(), network.getName());
+		
+		network.getCount().setValue(3);
+		tasks.remove(0).run();
+		assertThat(changes).hasSize(2);
+		assertThat(changes.get(1).getPrevious()).isSameAs(changes.get(0).getState());
+		assertThat(changes.get(1).getChanges())
+			.contains(network.getCount(), network.getDoubleCount())
+			.doesNotContain(network.getName());
+	}
+
+	@Test
+	public void valuePublisher() throws CheckFailedException {
+		ExampleNetwork network = new ExampleNetwork();
+		List<Integer> values = new ArrayList<>();
+		network.getDoubleCount().getValuePublisher().subscribe(new Flow.Subscriber<Integer>() {
+			@Override
+			public void onSubscribe(Flow.Subscription subscription) {
+				subscription.request(Long.MAX_VALUE);
+			}
+			
+			@Override
+			public void onNext(Integer item) {
+				values.add(item);
+			}
+			
+			@Override
+			public void onError(Throwable throwable) {
+			}
+			
+			@Override
+			public void onComplete() {
+			}
+		});
+		
+		network.getCount().setValue(2);
+		network.getName().setValue("Peter");
+		network.getCount().setValue(3);
+		assertThat(values).containsExactly(4, 6);
+	}
+
+	@Test
+	public void eventsCarryTheMergedState() throws CheckFailedException {
+		ExampleNetwork network = new ExampleNetwork();
+		StateMut.Builder first = network.startTransaction().set(network.getCount(), 2);
+		StateMut.Builder second = network.startTransaction().set(network.getName(), "Peter");
+		first.execute();
+		
+		List<State> states = new ArrayList<>();
+		List<StateChange> changes = new ArrayList<>();
+		network.getStateChangedEvent().subscribe(states::add);
+		network.getStateCommittedEvent().subscribe(changes::add);
+		second.execute();
+		
+		assertThat(states).hasSize(1);
+		assertThat(states.get(0)).isSameAs(network.getImmutableState());
+		assertThat(states.get(0).get(network.getCount())).isEqualTo(2);
+		assertThat(states.get(0).get(network.getName())).isEqualTo("Peter");
+		assertThat(states.get(0).getChanges()).containsExactly(network.getName());
+		assertThat(states.get(0).hasChanged(network.getCount())).isFalse();
+		
+		StateChange change = changes.get(0);
+		assertThat(change.getState()).isSameAs(states.get(0));
+		assertThat(change.getPrevious().get(network.getCount())).isEqualTo(2);
+		assertThat(change.getChanges()).containsExactly(network.getName());
+		assertThat(change.hasChanged(network.getName())).isTrue();
+		assertThat(change.hasChanged(network.getCount())).isFalse();
+		assertThat(change.hasChanged(new ExampleNetwork().getName())).isFalse();
+	}
+	
+	@Test
+	public void concurrentWritersSeeTheirOwnChanges() throws Exception {
+		ExampleNetwork network = new ExampleNetwork();
+		StateMut.Builder first = network.startTransaction().set(network.getCount(), 2);
+		StateMut.Builder second = network.startTransaction().set(network.getName(), "Peter");
+		List<State> states = Collections.synchronizedList(new ArrayList<>());
+		network.getStateChangedEvent().subscribe(states::add);
+		
+		CyclicBarrier barrier = new CyclicBarrier(2);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<?> firstWrite = executor.submit(() -> { barrier.await(); first.execute(); return null; });
+			Future<?> secondWrite = executor.submit(() -> { barrier.await(); second.execute(); return null; });
+			firstWrite.get(10, TimeUnit.SECONDS);
+			secondWrite.get(10, TimeUnit.SECONDS);
+		} finally {
+			executor.shutdown();
+		}
+		
+		assertThat(states).hasSize(2);
+		for (State state : states) {
+			if (state.hasChanged(network.getName())) {
+				assertThat(state.getChanges()).containsExactly(network.getName());
+			}
+			else {
+				assertThat(state.hasChanged(network.getCount())).isTrue();
+			}
+		}
+		
+		State last = network.getImmutableState();
+		assertThat(last.get(network.getCount())).isEqualTo(2);
+		assertThat(last.get(network.getName())).isEqualTo("Peter");
+	}
+
 	@Test
 	public void enableDisableASetting() throws CheckFailedException {
 		ExampleNetwork network = new ExampleNetwork();
@@ -211,6 +446,38 @@ public class StateMutTest {
 		assertThat(network.getInterdependent2().getValue()).isEqualTo(Sign.Negative);
 	}
 	
+	@Test
+	public void concurrentUpdates() throws Exception {
+		ExampleNetwork network = new ExampleNetwork();
+		Count count = network.getCount();
+		DoubleCount doubleCount = network.getDoubleCount();
+		List<Thread> threads = new ArrayList<>();
+		List<Exception> errors = Collections.synchronizedList(new ArrayList<>());
+		for (int i = 0; i < 4; i++) {
+			final int offset = i;
+			threads.add(new Thread(() -> {
+				try {
+					for (int j = 0; j < 100; j++) {
+						count.setValue((offset + j) % 10);
+					}
+				} catch (CheckFailedException e) {
+					errors.add(e);
+				}
+			}));
+		}
+		
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		
+		assertThat(errors).isEmpty();
+		assertThat(doubleCount.getValue()).isEqualTo(2 * count.getValue());
+	}
+	
 	@Test
 	public void convertTo() throws CheckFailedException {
 		ExampleNetwork network = new ExampleNetwork();
@@ -224,4 +491,24 @@ public class StateMutTest {
 		network.getInterdependent2().setValue(new IntSign(2));
 		assertThat(network.getInterdependent2().getValue()).isEqualTo(Sign.Positve);
 	}
+	
+	@Test
+	public void conflatedListenerFollowsReinitializedStates() throws CheckFailedException {
+		Register register = new Register();
+		com.github.liebharc.rsettingsexample.immutable.Name name = 
+				register.add(new com.github.liebharc.rsettingsexample.immutable.Name());
+		State initial = new State(register);
+		List<StateChange> changes = new ArrayList<>();
+		ConflatingListener listener = new ConflatingListener(changes::add, Runnable::run, initial);
+		listener.accept(initial.change().set(name, "Peter").build());
+		
+		State reinitialized = new State(register);
+		listener.accept(reinitialized);
+		listener.accept(reinitialized.change().set(name, "Paul").build());
+		
+		assertThat(changes).hasSize(3);
+		assertThat(changes.get(1).getState()).isSameAs(reinitialized);
+		assertThat(changes.get(1).getChanges()).containsExactly(name);
+		assertThat(changes.get(2).getState().get(name)).isEqualTo("Paul");
+	}
 }
@@ -0,0 +1,262 @@
+package com.github.liebharc.rsettings.persistence;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.liebharc.rsettings.CheckFailedException;
+import com.github.liebharc.rsettings.immutable.*;
+import com.github.liebharc.rsettingsexample.immutable.*;
+
+public class SnapshotTest {
+	
+	private static final class Network {
+		final Register register = new Register();
+		final Name name = register.add(new Name());
+		final DistanceInM m = register.add(new DistanceInM());
+		final DistanceInKm km = register.add(new DistanceInKm(m));
+	}
+	
+	private static final class Unset extends ReadWriteSetting<Integer> {
+		Unset() {
+			super(null, NoDependencies());
+		}
+	}
+	
+	private static final class Count extends ReadWriteIntSetting {
+		Count() {
+			super(0, NoDependencies());
+		}
+	}
+	
+	private static final class Tags extends ReadWriteSetting<List<String>> {
+		Tags() {
+			super(Collections.emptyList(), NoDependencies());
+		}
+	}
+	
+	private static final class Amount extends ReadWriteSetting<Number> {
+		Amount() {
+			super(0, NoDependencies());
+		}
+	}
+	
+	private enum Unit {
+		Meter {
+			@Override
+			public String toString() {
+				return "m";
+			}
+		},
+		
+		Foot
+	}
+	
+	private static final class UnitSetting extends ReadWriteSetting<Unit> {
+		UnitSetting() {
+			super(Unit.Foot, NoDependencies());
+		}
+	}
+	
+	private static final Codec<List<String>> LIST_CODEC = new Codec<List<String>>() {
+		@Override
+		public void write(List<String> value, DataOutput output) throws IOException {
+			output.writeInt(value.size());
+			for (String entry : value) {
+				output.writeUTF(entry);
+			}
+		}
+		
+		@Override
+		public List<String> read(DataInput input) throws IOException {
+			int size = input.readInt();
+			List<String> result = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				result.add(input.readUTF());
+			}
+			
+			return result;
+		}
+	};
+	
+	private static final Codec<Unit> UNIT_CODEC = new Codec<Unit>() {
+		@Override
+		public void write(Unit value, DataOutput output) throws IOException {
+			output.writeUTF(value.name());
+		}
+		
+		@Override
+		public Unit read(DataInput input) throws IOException {
+			return Unit.valueOf(input.readUTF());
+		}
+	};
+	
+	@SuppressWarnings("unchecked")
+	private static Codecs createCodecs() {
+		return Codecs.createDefault()
+				.register("list", (Class<List<String>>)(Class<?>)List.class, LIST_CODEC)
+				.register("unit", Unit.class, UNIT_CODEC);
+	}
+	
+	private static byte[] write(State state, Codecs codecs) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		new SnapshotWriter(codecs).write(state, output);
+		return output.toByteArray();
+	}
+	
+	@Test
+	public void writeAndLoad() throws IOException, CheckFailedException {
+		Network original = new Network();
+		State state = new State(original.register).change()
+				.set(original.name, "Peter")
+				.set(original.m, 2000.0)
+				.build();
+		byte[] snapshot = write(state, Codecs.createDefault());
+		
+		Network restored = new Network();
+		State loaded = new SnapshotReader(Codecs.createDefault())
+				.load(new State(restored.register), new ByteArrayInputStream(snapshot));
+		assertThat(loaded.get(restored.name)).isEqualTo("Peter");
+		assertThat(loaded.get(restored.m)).isEqualTo(2000.0);
+		assertThat(loaded.get(restored.km)).isEqualTo(2.0);
+		assertThat(loaded.getVersion()).isEqualTo(1);
+	}
+	
+	@Test
+	public void loadByKey() throws IOException, CheckFailedException {
+		Register register = new Register();
+		Name first = register.add("first", new Name());
+		Name second = register.add("second", new Name());
+		State state = new State(register).change()
+				.set(first, "Peter")
+				.set(second, "Paul")
+				.build();
+		byte[] snapshot = write(state, Codecs.createDefault());
+		
+		Register reordered = new Register();
+		Name secondRestored = reordered.add("second", new Name());
+		Name firstRestored = reordered.add("first", new Name());
+		State loaded = new SnapshotReader(Codecs.createDefault())
+				.load(new State(reordered), new ByteArrayInputStream(snapshot));
+		assertThat(loaded.get(firstRestored)).isEqualTo("Peter");
+		assertThat(loaded.get(secondRestored)).isEqualTo("Paul");
+	}
+	
+	@Test
+	public void customCodec() throws IOException, CheckFailedException {
+		Codecs codecs = Codecs.createDefault().register("upper", String.class, new Codec<String>() {
+			@Override
+			public void write(String value, DataOutput output) throws IOException {
+				output.writeUTF(value.toUpperCase());
+			}
+			
+			@Override
+			public String read(DataInput input) throws IOException {
+				return input.readUTF();
+			}
+		});
+		Network network = new Network();
+		State state = new State(network.register).change()
+				.set(network.name, "Peter")
+				.build();
+		byte[] snapshot = write(state, codecs);
+		State loaded = new SnapshotReader(codecs)
+				.load(new State(new Network().register), new ByteArrayInputStream(snapshot));
+		assertThat(loaded.get(loaded.listSettings().iterator().next())).isEqualTo("PETER");
+	}
+	
+	@Test
+	public void longStrings() throws IOException, CheckFailedException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 70000; i++) {
+			text.append((char)('a' + i % 26));
+		}
+		
+		text.append('\u00e4');
+		Network original = new Network();
+		State state = new State(original.register).change()
+				.set(original.name, text.toString())
+				.build();
+		byte[] snapshot = write(state, Codecs.createDefault());
+		Network restored = new Network();
+		State loaded = new SnapshotReader(Codecs.createDefault())
+				.load(new State(restored.register), new ByteArrayInputStream(snapshot));
+		assertThat(loaded.get(restored.name)).isEqualTo(text.toString());
+	}
+	
+	@Test
+	public void primitiveSettingsRejectOtherTypes() throws IOException, CheckFailedException {
+		Register register = new Register();
+		Name name = register.add("value", new Name());
+		State state = new State(register).change()
+				.set(name, "Peter")
+				.build();
+		byte[] snapshot = write(state, Codecs.createDefault());
+		
+		Register primitive = new Register();
+		primitive.add("value", new Count());
+		assertThatThrownBy(() -> new SnapshotReader(Codecs.createDefault())
+				.load(new State(primitive), new ByteArrayInputStream(snapshot)))
+			.isInstanceOf(IOException.class);
+	}
+	
+	@Test
+	public void primitiveSettingsRejectNull() throws IOException {
+		Register register = new Register();
+		register.add("value", new Unset());
+		byte[] snapshot = write(new State(register), Codecs.createDefault());
+		
+		Register primitive = new Register();
+		primitive.add("value", new Count());
+		assertThatThrownBy(() -> new SnapshotReader(Codecs.createDefault())
+				.load(new State(primitive), new ByteArrayInputStream(snapshot)))
+			.isInstanceOf(IOException.class);
+	}
+	
+	@Test
+	public void codecsOfSupertypes() throws IOException, CheckFailedException {
+		Register register = new Register();
+		Tags tags = register.add("tags", new Tags());
+		Tags otherTags = register.add("otherTags", new Tags());
+		Amount amount = register.add("amount", new Amount());
+		UnitSetting unit = register.add("unit", new UnitSetting());
+		State state = new State(register).change()
+				.set(tags, new ArrayList<>(Arrays.asList("a", "b")))
+				.set(amount, 2.5)
+				.set(unit, Unit.Meter)
+				.build();
+		byte[] snapshot = write(state, createCodecs());
+		
+		State loaded = new SnapshotReader(createCodecs())
+				.load(new State(register), new ByteArrayInputStream(snapshot));
+		assertThat(loaded.get(tags)).containsExactly("a", "b");
+		assertThat(loaded.get(otherTags)).isEmpty();
+		assertThat(loaded.get(amount)).isEqualTo(2.5);
+		assertThat(loaded.get(unit)).isEqualTo(Unit.Meter);
+	}
+	
+	@Test
+	public void missingCodec() throws IOException {
+		byte[] snapshot = write(new State(new Network().register), Codecs.createDefault());
+		assertThatThrownBy(() -> new SnapshotReader(new Codecs())
+				.load(new State(new Network().register), new ByteArrayInputStream(snapshot)))
+			.isInstanceOf(IOException.class);
+	}
+	
+	@Test
+	public void invalidStream() {
+		assertThatThrownBy(() -> new SnapshotReader(Codecs.createDefault())
+				.load(new State(new Network().register), new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 })))
+			.isInstanceOf(IOException.class);
+	}
+}